@@ -0,0 +1,211 @@
+package io.github.dk900912.pdf2image.cache;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Bounded LRU cache of parsed documents, so that converting the same file again skips
+ * parsing its xref tables and object streams.
+ *
+ * <p>PDDocument is not thread-safe, so a cached document is lent to one conversion at a time:
+ * {@link #acquire} hands out an idle instance or loads a new one, and {@link #release} puts it
+ * back. Several idle instances of the same file may be kept, which lets parallel workers reuse
+ * them as well. Entries are keyed by path, size, modification time and the settings the file was
+ * loaded with, so a changed file is parsed again and an instance is only lent to conversions
+ * loading it the same way. Only idle documents are counted against the limits, weighed by their file size;
+ * the least recently released ones are closed first.</p>
+ *
+ * @author dukui
+ */
+public final class DocumentCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentCache.class);
+
+    private final int maxDocuments;
+    private final long maxWeightBytes;
+
+    /**
+     * Idle documents, least recently released first.
+     */
+    private final Deque<Entry> idle = new ArrayDeque<>();
+    private final Map<PDDocument, Entry> leased = new IdentityHashMap<>();
+    private long idleWeightBytes;
+    private long hitCount;
+    private long missCount;
+    private boolean closed;
+
+    public DocumentCache(int maxDocuments, long maxWeightBytes) {
+        if (maxDocuments < 1) {
+            throw new IllegalArgumentException("Max documents must be at least 1");
+        }
+        if (maxWeightBytes < 1) {
+            throw new IllegalArgumentException("Max weight must be positive");
+        }
+        this.maxDocuments = maxDocuments;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * Borrows a parsed instance of the given file, loading it if no idle instance is cached.
+     *
+     * @param path the PDF file
+     * @param loader loads a new instance of the file
+     * @return the document, to be handed back with {@link #release}
+     * @exception IOException if the file cannot be inspected or loaded
+     */
+    public PDDocument acquire(Path path, Loader loader) throws IOException {
+        return acquire(path, null, loader, document -> { });
+    }
+
+    /**
+     * Borrows a parsed instance of the given file loaded with the given settings, loading it if
+     * no idle instance is cached. A newly loaded instance is passed to {@code onClose} right before
+     * the cache closes it, so that whatever was set up for it when it was loaded can be released with it.
+     *
+     * @param path the PDF file
+     * @param loadSettings how the file is loaded, compared with {@code equals}; instances loaded
+     *                     with other settings are not lent
+     * @param loader loads a new instance of the file
+     * @param onClose called with the new instance when the cache closes it
+     * @return the document, to be handed back with {@link #release}
+     * @exception IOException if the file cannot be inspected or loaded
+     */
+    public PDDocument acquire(Path path, Object loadSettings, Loader loader, Consumer<PDDocument> onClose)
+            throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Key key = new Key(path.toAbsolutePath().normalize(), attributes.size(), attributes.lastModifiedTime(),
+                loadSettings);
+
+        List<Entry> stale = new ArrayList<>();
+        try {
+            synchronized (this) {
+                Iterator<Entry> newestFirst = idle.descendingIterator();
+                while (newestFirst.hasNext()) {
+                    Entry entry = newestFirst.next();
+                    if (entry.key.equals(key)) {
+                        newestFirst.remove();
+                        idleWeightBytes -= entry.key.size;
+                        leased.put(entry.document, entry);
+                        hitCount++;
+                        logger.debug("Reusing cached document: {}", path);
+                        return entry.document;
+                    }
+                    if (entry.key.path.equals(key.path)
+                            && (entry.key.size != key.size || !entry.key.lastModified.equals(key.lastModified))) {
+                        // the file changed since this instance was parsed
+                        newestFirst.remove();
+                        idleWeightBytes -= entry.key.size;
+                        stale.add(entry);
+                    }
+                }
+                missCount++;
+            }
+        } finally {
+            closeAll(stale);
+        }
+
+        PDDocument document = loader.load();
+        synchronized (this) {
+            leased.put(document, new Entry(key, document, onClose));
+        }
+        return document;
+    }
+
+    /**
+     * Hands a borrowed document back to the cache, which may close it to stay within its limits.
+     *
+     * @param document the document
+     * @return {@code false} if the document was not borrowed from this cache and is left untouched
+     */
+    public boolean release(PDDocument document) {
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry entry = leased.remove(document);
+            if (entry == null) {
+                return false;
+            }
+            if (closed || entry.key.size > maxWeightBytes) {
+                evicted.add(entry);
+            } else {
+                idle.addLast(entry);
+                idleWeightBytes += entry.key.size;
+                while (idle.size() > maxDocuments || idleWeightBytes > maxWeightBytes) {
+                    Entry eldest = idle.removeFirst();
+                    idleWeightBytes -= eldest.key.size;
+                    evicted.add(eldest);
+                }
+            }
+        }
+        closeAll(evicted);
+        return true;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the number of idle documents currently cached.
+     */
+    public synchronized int size() {
+        return idle.size();
+    }
+
+    /**
+     * Closes every idle document. Documents still borrowed are closed when they are released.
+     */
+    @Override
+    public void close() {
+        List<Entry> evicted;
+        synchronized (this) {
+            closed = true;
+            evicted = new ArrayList<>(idle);
+            idle.clear();
+            idleWeightBytes = 0;
+        }
+        closeAll(evicted);
+    }
+
+    private void closeAll(List<Entry> entries) {
+        for (Entry entry : entries) {
+            try {
+                entry.onClose.accept(entry.document);
+                entry.document.close();
+                logger.debug("Evicted cached document: {}", entry.key.path);
+            } catch (IOException e) {
+                logger.warn("Failed to close cached PDF document", e);
+            }
+        }
+    }
+
+    /**
+     * Loads a new instance of a document.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        PDDocument load() throws IOException;
+    }
+
+    private record Key(Path path, long size, FileTime lastModified, Object loadSettings) { }
+
+    private record Entry(Key key, PDDocument document, Consumer<PDDocument> onClose) { }
+}
@@ -0,0 +1,283 @@
+package io.github.dk900912.pdf2image.cache;
+
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.ResourceCache;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDFontDescriptor;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.shading.PDShading;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded, thread-safe LRU cache of page resources, installed by the converter as the
+ * {@link ResourceCache} of every document it loads. Fonts, images, color spaces and the other
+ * indirect resources are then parsed once per document instead of once per page, and a document
+ * reused through the {@link DocumentCache} keeps them warm across conversions.
+ *
+ * <p>PDFBox's default cache is per document and bounded only by soft references; this one is
+ * shared by all documents and bounded by entry count and estimated weight, evicting the least
+ * recently used resources first. Image weights are their decoded size, since PDFBox keeps the
+ * decoded bitmap of a cached image; embedded fonts weigh their font program.</p>
+ *
+ * <p>Resources belong to the object graph of their document and are never handed to another
+ * document. Entries of a document are dropped when the converter closes it; entries of
+ * documents closed elsewhere age out.</p>
+ *
+ * @author dukui
+ */
+public final class SharedResourceCache {
+
+    /**
+     * Weight of resources without a meaningful size estimate.
+     */
+    private static final long SMALL_WEIGHT = 1024;
+
+    private final int maxEntries;
+    private final long maxWeightBytes;
+
+    /**
+     * Cached resources, least recently used first.
+     */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weightBytes;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public SharedResourceCache(int maxEntries, long maxWeightBytes) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Max entries must be at least 1");
+        }
+        if (maxWeightBytes < 1) {
+            throw new IllegalArgumentException("Max weight must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    /**
+     * Returns the view of this cache to install as the resource cache of a document.
+     *
+     * @param document the document
+     * @return the resource cache of the document
+     */
+    public ResourceCache forDocument(PDDocument document) {
+        return new DocumentView(document);
+    }
+
+    /**
+     * Drops every resource of a document, typically because it is being closed.
+     *
+     * @param document the document
+     */
+    public synchronized void invalidate(PDDocument document) {
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, Entry> entry = iterator.next();
+            if (entry.getKey().document == document) {
+                weightBytes -= entry.getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Returns the number of resources currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the estimated weight of the resources currently cached.
+     */
+    public synchronized long getWeightBytes() {
+        return weightBytes;
+    }
+
+    private synchronized <T> T get(PDDocument document, Kind kind, COSObject indirect, Class<T> type) {
+        Entry entry = entries.get(new Key(document, kind, indirect));
+        if (entry == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return type.cast(entry.value);
+    }
+
+    private synchronized void put(PDDocument document, Kind kind, COSObject indirect, Object value, long weight) {
+        if (indirect == null || value == null || weight > maxWeightBytes) {
+            return;
+        }
+        Entry previous = entries.put(new Key(document, kind, indirect), new Entry(value, weight));
+        if (previous != null) {
+            weightBytes -= previous.weight;
+        }
+        weightBytes += weight;
+        Iterator<Entry> eldestFirst = entries.values().iterator();
+        while (entries.size() > maxEntries || weightBytes > maxWeightBytes) {
+            weightBytes -= eldestFirst.next().weight;
+            eldestFirst.remove();
+            evictionCount++;
+        }
+    }
+
+    private static long weigh(PDFont font) {
+        PDFontDescriptor descriptor = font.getFontDescriptor();
+        if (descriptor == null) {
+            return SMALL_WEIGHT;
+        }
+        long weight = SMALL_WEIGHT;
+        for (PDStream program : new PDStream[] {
+                descriptor.getFontFile(), descriptor.getFontFile2(), descriptor.getFontFile3()}) {
+            if (program != null) {
+                weight += program.getCOSObject().getLength();
+            }
+        }
+        return weight;
+    }
+
+    private static long weigh(PDXObject xobject) {
+        if (xobject instanceof PDImageXObject image) {
+            return Math.max((long) image.getWidth() * image.getHeight() * Integer.BYTES, SMALL_WEIGHT);
+        }
+        return SMALL_WEIGHT;
+    }
+
+    private enum Kind {
+        FONT, COLOR_SPACE, EXT_G_STATE, SHADING, PATTERN, PROPERTIES, XOBJECT
+    }
+
+    /**
+     * Identifies a resource by its document and indirect object, both compared by identity.
+     */
+    private static final class Key {
+
+        private final PDDocument document;
+        private final Kind kind;
+        private final COSObject indirect;
+
+        Key(PDDocument document, Kind kind, COSObject indirect) {
+            this.document = document;
+            this.kind = kind;
+            this.indirect = indirect;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other
+                    && document == other.document && kind == other.kind && indirect == other.indirect;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(document) + kind.hashCode()) + System.identityHashCode(indirect);
+        }
+    }
+
+    private record Entry(Object value, long weight) { }
+
+    /**
+     * The resource cache of one document, backed by the shared entries.
+     */
+    private final class DocumentView implements ResourceCache {
+
+        private final PDDocument document;
+
+        DocumentView(PDDocument document) {
+            this.document = document;
+        }
+
+        @Override
+        public PDFont getFont(COSObject indirect) {
+            return get(document, Kind.FONT, indirect, PDFont.class);
+        }
+
+        @Override
+        public PDColorSpace getColorSpace(COSObject indirect) {
+            return get(document, Kind.COLOR_SPACE, indirect, PDColorSpace.class);
+        }
+
+        @Override
+        public PDExtendedGraphicsState getExtGState(COSObject indirect) {
+            return get(document, Kind.EXT_G_STATE, indirect, PDExtendedGraphicsState.class);
+        }
+
+        @Override
+        public PDShading getShading(COSObject indirect) {
+            return get(document, Kind.SHADING, indirect, PDShading.class);
+        }
+
+        @Override
+        public PDAbstractPattern getPattern(COSObject indirect) {
+            return get(document, Kind.PATTERN, indirect, PDAbstractPattern.class);
+        }
+
+        @Override
+        public PDPropertyList getProperties(COSObject indirect) {
+            return get(document, Kind.PROPERTIES, indirect, PDPropertyList.class);
+        }
+
+        @Override
+        public PDXObject getXObject(COSObject indirect) {
+            return get(document, Kind.XOBJECT, indirect, PDXObject.class);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDFont font) {
+            SharedResourceCache.this.put(document, Kind.FONT, indirect, font, weigh(font));
+        }
+
+        @Override
+        public void put(COSObject indirect, PDColorSpace colorSpace) {
+            SharedResourceCache.this.put(document, Kind.COLOR_SPACE, indirect, colorSpace, SMALL_WEIGHT);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDExtendedGraphicsState extGState) {
+            SharedResourceCache.this.put(document, Kind.EXT_G_STATE, indirect, extGState, SMALL_WEIGHT);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDShading shading) {
+            SharedResourceCache.this.put(document, Kind.SHADING, indirect, shading, SMALL_WEIGHT);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDAbstractPattern pattern) {
+            SharedResourceCache.this.put(document, Kind.PATTERN, indirect, pattern, SMALL_WEIGHT);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDPropertyList propertyList) {
+            SharedResourceCache.this.put(document, Kind.PROPERTIES, indirect, propertyList, SMALL_WEIGHT);
+        }
+
+        @Override
+        public void put(COSObject indirect, PDXObject xobject) {
+            SharedResourceCache.this.put(document, Kind.XOBJECT, indirect, xobject, weigh(xobject));
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * What happens to pages detected as blank.
+ * Blank pages are reported under {@code "blank-pages"} in the context of the conversion.
+ *
+ * @author dukui
+ */
+public enum BlankPagePolicy {
+    /**
+     * Blank pages are not detected and are converted like any other page
+     */
+    KEEP,
+
+    /**
+     * Blank pages are reported and not stored
+     */
+    SKIP,
+
+    /**
+     * Blank pages are reported and stored as usual
+     */
+    MARK,
+
+    /**
+     * Blank pages are reported and stored at an eighth of their size
+     */
+    DOWNSCALE
+}
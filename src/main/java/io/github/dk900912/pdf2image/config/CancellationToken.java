@@ -0,0 +1,25 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * Handle for cancelling running conversions from another thread.
+ * The converter checks it between pages and the renderer checks it while drawing,
+ * so a cancelled conversion stops within a fraction of a page. One token may be
+ * shared by several configurations to cancel them together.
+ *
+ * @author dukui
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    /**
+     * Requests cancellation of every conversion using this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -1,7 +1,16 @@
 package io.github.dk900912.pdf2image.config;
 
+import io.github.dk900912.pdf2image.cache.DocumentCache;
+import io.github.dk900912.pdf2image.cache.SharedResourceCache;
+
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Configuration for PDF to image conversion.
@@ -11,33 +20,97 @@ import java.util.Optional;
  */
 public final class ConversionConfig {
     private final Path inputDirectory;
+    private final InputSource inputSource;
     private final Path outputDirectory;
     private final ImageFormat imageFormat;
     private final ImageMode imageMode;
     private final Resolution resolution;
+    private final int dpi;
+    private final TargetSize targetSize;
     private final RenderingConfig renderingConfig;
     private final Integer startPage;
     private final Integer endPage;
     private final boolean enableCropping;
+    private final int croppingTolerance;
     private final int rotationDegrees;
+    private final ExecutionMode executionMode;
+    private final int parallelism;
+    private final ExecutorService executor;
+    private final int pipelineQueueCapacity;
+    private final boolean resumable;
+    private final MemoryBudget memoryBudget;
+    private final LoadingStrategy loadingStrategy;
+    private final long maxMainMemoryBytes;
+    private final Path scratchDirectory;
+    private final DocumentCache documentCache;
+    private final SharedResourceCache resourceCache;
+    private final boolean lazyLoading;
+    private final Duration pageTimeout;
+    private final Duration documentTimeout;
+    private final CancellationToken cancellationToken;
+    private final int bandHeight;
+    private final List<OutputSpec> additionalOutputs;
+    private final boolean scannedPageFastPath;
+    private final boolean deduplicatePages;
+    private final BlankPagePolicy blankPagePolicy;
+    private final double blankPageInkRatio;
 
     private ConversionConfig(Builder builder) {
         this.inputDirectory = builder.inputDirectory;
+        this.inputSource = builder.inputSource;
         this.outputDirectory = builder.outputDirectory;
         this.imageFormat = builder.imageFormat;
         this.imageMode = builder.imageMode;
         this.resolution = builder.resolution;
+        this.dpi = builder.dpi;
+        this.targetSize = builder.targetSize;
         this.renderingConfig = builder.renderingConfig;
         this.startPage = builder.startPage;
         this.endPage = builder.endPage;
         this.enableCropping = builder.enableCropping;
+        this.croppingTolerance = builder.croppingTolerance;
         this.rotationDegrees = builder.rotationDegrees;
+        this.executionMode = builder.executionMode;
+        this.parallelism = builder.parallelism;
+        this.executor = builder.executor;
+        this.pipelineQueueCapacity = builder.pipelineQueueCapacity;
+        this.resumable = builder.resumable;
+        this.memoryBudget = builder.memoryBudget;
+        this.loadingStrategy = builder.loadingStrategy;
+        this.maxMainMemoryBytes = builder.maxMainMemoryBytes;
+        this.scratchDirectory = builder.scratchDirectory;
+        this.documentCache = builder.documentCache;
+        this.resourceCache = builder.resourceCache;
+        this.lazyLoading = builder.lazyLoading;
+        this.pageTimeout = builder.pageTimeout;
+        this.documentTimeout = builder.documentTimeout;
+        this.cancellationToken = builder.cancellationToken;
+        this.bandHeight = builder.bandHeight;
+        this.additionalOutputs = List.copyOf(builder.additionalOutputs);
+        this.scannedPageFastPath = builder.scannedPageFastPath;
+        this.deduplicatePages = builder.deduplicatePages;
+        this.blankPagePolicy = builder.blankPagePolicy;
+        this.blankPageInkRatio = builder.blankPageInkRatio;
     }
 
+    /**
+     * Returns the input file, or {@code null} if the document is read from memory.
+     *
+     * @return the input file path
+     */
     public Path getInputDirectory() {
         return inputDirectory;
     }
 
+    /**
+     * Returns where the document is read from.
+     *
+     * @return the input source
+     */
+    public InputSource getInputSource() {
+        return inputSource;
+    }
+
     public Path getOutputDirectory() {
         return outputDirectory;
     }
@@ -50,10 +123,47 @@ public final class ConversionConfig {
         return imageMode;
     }
 
+    /**
+     * Returns the resolution level closest to the DPI pages are rendered at. A DPI set directly
+     * selects the level with the nearest DPI, so the level is only exact when its DPI equals
+     * {@link #getDpi()}, which always holds the DPI actually used.
+     *
+     * @return the resolution level, never {@code null}
+     */
     public Resolution getResolution() {
         return resolution;
     }
 
+    /**
+     * Returns the DPI pages are rendered at, either set directly or taken from the resolution.
+     *
+     * @return the dots per inch
+     */
+    public int getDpi() {
+        return dpi;
+    }
+
+    /**
+     * Returns the size pages are fitted to. When present, it takes precedence over the DPI.
+     *
+     * @return the target size, if any
+     */
+    public Optional<TargetSize> getTargetSize() {
+        return Optional.ofNullable(targetSize);
+    }
+
+    /**
+     * Returns the scale from PDF points to pixels for a page of the given displayed size.
+     * Standard DPI is 72, so without a target size the scale is DPI / 72.
+     *
+     * @param widthPt the width of the page in points
+     * @param heightPt the height of the page in points
+     * @return the scale factor
+     */
+    public float getScale(float widthPt, float heightPt) {
+        return targetSize != null ? targetSize.scale(widthPt, heightPt) : dpi / 72f;
+    }
+
     public RenderingConfig getRenderingConfig() {
         return renderingConfig;
     }
@@ -66,32 +176,343 @@ public final class ConversionConfig {
         return Optional.ofNullable(endPage);
     }
 
+    /**
+     * Returns whether page margins are trimmed. The renderer only rasterizes the bounding box of
+     * what the page paints, and the image processor then trims the rows and columns along the
+     * borders that hold no pixel darker than the {@linkplain #getCroppingTolerance() tolerance}.
+     * Pages without any such pixel are kept whole.
+     *
+     * @return {@code true} if margins are trimmed
+     */
     public boolean isEnableCropping() {
         return enableCropping;
     }
 
+    /**
+     * Returns how far below white, in levels of luminance, a pixel may be and still count as
+     * margin when cropping, which absorbs anti-aliasing haze and scanner noise.
+     *
+     * @return the tolerance, between 0 and 254
+     */
+    public int getCroppingTolerance() {
+        return croppingTolerance;
+    }
+
     public int getRotationDegrees() {
         return rotationDegrees;
     }
 
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Returns the executor used to run page workers in {@link ExecutionMode#PARALLEL} mode.
+     * When absent, the converter creates and shuts down its own pool per conversion.
+     *
+     * @return the caller supplied executor, if any
+     */
+    public Optional<ExecutorService> getExecutor() {
+        return Optional.ofNullable(executor);
+    }
+
+    /**
+     * Returns the capacity of each hand-off queue in {@link ExecutionMode#PIPELINED} mode.
+     * Together with the number of stage workers it bounds how many page images are held in memory.
+     *
+     * @return the queue capacity
+     */
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
+    /**
+     * Returns whether pages completed by an interrupted earlier run are kept and skipped.
+     *
+     * @return {@code true} if the conversion resumes from its checkpoint manifest
+     */
+    public boolean isResumable() {
+        return resumable;
+    }
+
+    /**
+     * Returns the budget page bitmaps are admitted against before rendering.
+     * When absent, pages are rendered without admission control.
+     *
+     * @return the memory budget, if any
+     */
+    public Optional<MemoryBudget> getMemoryBudget() {
+        return Optional.ofNullable(memoryBudget);
+    }
+
+    public LoadingStrategy getLoadingStrategy() {
+        return loadingStrategy;
+    }
+
+    /**
+     * Returns how many bytes of scratch data are kept on the heap before spilling to a temp file
+     * in {@link LoadingStrategy#MIXED} and {@link LoadingStrategy#MEMORY_MAPPED} loading.
+     *
+     * @return the heap limit for scratch data
+     */
+    public long getMaxMainMemoryBytes() {
+        return maxMainMemoryBytes;
+    }
+
+    /**
+     * Returns the directory scratch files are created in. When absent, the system temp directory is used.
+     *
+     * @return the scratch directory, if any
+     */
+    public Optional<Path> getScratchDirectory() {
+        return Optional.ofNullable(scratchDirectory);
+    }
+
+    /**
+     * Returns the cache parsed file inputs are borrowed from. When absent, every conversion parses the file.
+     *
+     * @return the document cache, if any
+     */
+    public Optional<DocumentCache> getDocumentCache() {
+        return Optional.ofNullable(documentCache);
+    }
+
+    /**
+     * Returns the cache installed as the resource cache of every loaded document.
+     * When absent, PDFBox's default per-document cache is used.
+     *
+     * @return the shared resource cache, if any
+     */
+    public Optional<SharedResourceCache> getResourceCache() {
+        return Optional.ofNullable(resourceCache);
+    }
+
+    /**
+     * Returns whether the document is parsed strictly, so that only the xref, the trailer and the
+     * objects of the requested pages are read. Damaged files fall back to the lenient parser.
+     *
+     * @return {@code true} if lazy loading is enabled
+     */
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Returns how long a single page may take to render before it is abandoned and reported,
+     * while the remaining pages are still converted.
+     *
+     * @return the page timeout, if any
+     */
+    public Optional<Duration> getPageTimeout() {
+        return Optional.ofNullable(pageTimeout);
+    }
+
+    /**
+     * Returns how long the whole conversion may take before it is stopped.
+     *
+     * @return the document timeout, if any
+     */
+    public Optional<Duration> getDocumentTimeout() {
+        return Optional.ofNullable(documentTimeout);
+    }
+
+    /**
+     * Returns the token that cancels this conversion from another thread.
+     *
+     * @return the cancellation token, if any
+     */
+    public Optional<CancellationToken> getCancellationToken() {
+        return Optional.ofNullable(cancellationToken);
+    }
+
+    /**
+     * Returns the height in pixels of the horizontal bands pages are rendered and written in,
+     * so that only one band of a page is held in memory. Zero renders every page as a whole.
+     * Banded pages go straight from the renderer to the image storage, bypassing the image processor;
+     * pages pulled through the page iterator, stream or publisher are always rendered whole.
+     *
+     * <p>Memory is traded for time: every band runs the page's whole content stream and only
+     * keeps what falls into the band, so a page in n bands takes about n times as long to render.
+     * Pick the tallest band the memory allows.</p>
+     *
+     * @return the band height, or {@code 0} if banded rendering is disabled
+     */
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
+    /**
+     * Returns the outputs derived from the pages rendered for this configuration's own output.
+     * Pulled pages (iterator, stream, publisher) are not fanned out.
+     *
+     * @return the additional outputs, possibly empty
+     */
+    public List<OutputSpec> getAdditionalOutputs() {
+        return additionalOutputs;
+    }
+
+    /**
+     * Returns whether pages consisting of a single full-page image, as produced by scanners,
+     * are taken from the embedded image instead of being rasterized. The image is decoded once
+     * and scaled to the page size; a JPEG image already matching the output format, color mode
+     * and size is copied to the output byte for byte.
+     *
+     * @return {@code true} if the scanned page fast path is enabled
+     */
+    public boolean isScannedPageFastPath() {
+        return scannedPageFastPath;
+    }
+
+    /**
+     * Returns whether pages repeating an earlier page of the document are stored as copies of its
+     * output instead of being rendered again. Pages are compared by their content streams and
+     * resources before rendering. Not supported in pipelined mode.
+     *
+     * @return {@code true} if duplicate pages are detected
+     */
+    public boolean isDeduplicatePages() {
+        return deduplicatePages;
+    }
+
+    /**
+     * Returns what happens to blank pages. A page is blank when its content stream paints nothing,
+     * or when less than the {@linkplain #getBlankPageInkRatio() ink ratio} of its processed pixels
+     * is dark. Banded pages are only checked before rendering; pages pulled through the page
+     * iterator, stream or publisher are not checked.
+     *
+     * @return the blank page policy
+     */
+    public BlankPagePolicy getBlankPagePolicy() {
+        return blankPagePolicy;
+    }
+
+    /**
+     * Returns the largest share of dark pixels a page may have and still count as blank,
+     * which absorbs scanner noise and specks.
+     *
+     * @return the ink ratio, between 0 and 1
+     */
+    public double getBlankPageInkRatio() {
+        return blankPageInkRatio;
+    }
+
+    /**
+     * Returns the configuration describing an additional output, as seen by its storage:
+     * this configuration with the output's directory, format, color mode and size.
+     *
+     * @param output one of the additional outputs
+     * @return the configuration of the output, without additional outputs of its own
+     */
+    public ConversionConfig forOutput(OutputSpec output) {
+        Builder builder = toBuilder()
+                .outputDirectory(output.getOutputDirectory())
+                .imageFormat(output.getImageFormat())
+                .imageMode(output.getImageMode())
+                .targetSize(output.getTargetSize().orElse(null));
+        output.getDpi().ifPresent(builder::dpi);
+        builder.additionalOutputs.clear();
+        return builder.build();
+    }
+
+    /**
+     * Returns a builder initialized with the settings of this configuration.
+     *
+     * @return a new builder
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.inputDirectory = inputDirectory;
+        builder.inputSource = inputSource;
+        builder.outputDirectory = outputDirectory;
+        builder.imageFormat = imageFormat;
+        builder.imageMode = imageMode;
+        builder.resolution = resolution;
+        builder.dpi = dpi;
+        builder.targetSize = targetSize;
+        builder.renderingConfig = renderingConfig;
+        builder.startPage = startPage;
+        builder.endPage = endPage;
+        builder.enableCropping = enableCropping;
+        builder.croppingTolerance = croppingTolerance;
+        builder.rotationDegrees = rotationDegrees;
+        builder.executionMode = executionMode;
+        builder.parallelism = parallelism;
+        builder.executor = executor;
+        builder.pipelineQueueCapacity = pipelineQueueCapacity;
+        builder.resumable = resumable;
+        builder.memoryBudget = memoryBudget;
+        builder.loadingStrategy = loadingStrategy;
+        builder.maxMainMemoryBytes = maxMainMemoryBytes;
+        builder.scratchDirectory = scratchDirectory;
+        builder.documentCache = documentCache;
+        builder.resourceCache = resourceCache;
+        builder.lazyLoading = lazyLoading;
+        builder.pageTimeout = pageTimeout;
+        builder.documentTimeout = documentTimeout;
+        builder.cancellationToken = cancellationToken;
+        builder.bandHeight = bandHeight;
+        builder.additionalOutputs.addAll(additionalOutputs);
+        builder.scannedPageFastPath = scannedPageFastPath;
+        builder.deduplicatePages = deduplicatePages;
+        builder.blankPagePolicy = blankPagePolicy;
+        builder.blankPageInkRatio = blankPageInkRatio;
+        return builder;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
 
     public static class Builder {
         private Path inputDirectory;
+        private InputSource inputSource;
         private Path outputDirectory;
         private ImageFormat imageFormat = ImageFormat.PNG;
         private ImageMode imageMode = ImageMode.COLOR;
         private Resolution resolution = Resolution.MEDIUM;
+        private int dpi = Resolution.MEDIUM.getDpi();
+        private TargetSize targetSize;
         private RenderingConfig renderingConfig = RenderingConfig.defaultConfig();
         private Integer startPage;
         private Integer endPage;
         private boolean enableCropping = false;
+        private int croppingTolerance = 16;
         private int rotationDegrees = 0;
+        private ExecutionMode executionMode = ExecutionMode.SEQUENTIAL;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private ExecutorService executor;
+        private int pipelineQueueCapacity = 4;
+        private boolean resumable = false;
+        private MemoryBudget memoryBudget;
+        private LoadingStrategy loadingStrategy = LoadingStrategy.HEAP_ONLY;
+        private long maxMainMemoryBytes = 64L * 1024 * 1024;
+        private Path scratchDirectory;
+        private DocumentCache documentCache;
+        private SharedResourceCache resourceCache;
+        private boolean lazyLoading = false;
+        private Duration pageTimeout;
+        private Duration documentTimeout;
+        private CancellationToken cancellationToken;
+        private int bandHeight = 0;
+        private final List<OutputSpec> additionalOutputs = new ArrayList<>();
+        private boolean scannedPageFastPath = false;
+        private boolean deduplicatePages = false;
+        private BlankPagePolicy blankPagePolicy = BlankPagePolicy.KEEP;
+        private double blankPageInkRatio = 0.001;
 
         public Builder inputDirectory(Path path) {
             this.inputDirectory = path;
+            this.inputSource = path == null ? null : InputSource.of(path);
+            return this;
+        }
+
+        public Builder input(InputSource source) {
+            this.inputSource = source;
+            this.inputDirectory = source instanceof InputSource.FileInput file ? file.path() : null;
             return this;
         }
 
@@ -112,6 +533,20 @@ public final class ConversionConfig {
 
         public Builder resolution(Resolution resolution) {
             this.resolution = resolution;
+            this.dpi = resolution.getDpi();
+            return this;
+        }
+
+        public Builder dpi(int dpi) {
+            this.dpi = dpi;
+            this.resolution = Arrays.stream(Resolution.values())
+                    .min(Comparator.comparingInt(level -> Math.abs(level.getDpi() - dpi)))
+                    .orElseThrow();
+            return this;
+        }
+
+        public Builder targetSize(TargetSize size) {
+            this.targetSize = size;
             return this;
         }
 
@@ -120,6 +555,11 @@ public final class ConversionConfig {
             return this;
         }
 
+        public Builder renderingProfile(RenderingProfile profile) {
+            this.renderingConfig = profile.toConfig();
+            return this;
+        }
+
         public Builder pageRange(int start, int end) {
             this.startPage = start;
             this.endPage = end;
@@ -131,19 +571,194 @@ public final class ConversionConfig {
             return this;
         }
 
+        public Builder croppingTolerance(int tolerance) {
+            this.croppingTolerance = tolerance;
+            return this;
+        }
+
         public Builder rotation(int degrees) {
             this.rotationDegrees = degrees % 360;
             return this;
         }
 
+        public Builder executionMode(ExecutionMode mode) {
+            this.executionMode = mode;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder pipelineQueueCapacity(int capacity) {
+            this.pipelineQueueCapacity = capacity;
+            return this;
+        }
+
+        public Builder resumable(boolean resumable) {
+            this.resumable = resumable;
+            return this;
+        }
+
+        public Builder memoryBudget(MemoryBudget memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
+        public Builder loadingStrategy(LoadingStrategy strategy) {
+            this.loadingStrategy = strategy;
+            return this;
+        }
+
+        public Builder maxMainMemoryBytes(long bytes) {
+            this.maxMainMemoryBytes = bytes;
+            return this;
+        }
+
+        public Builder scratchDirectory(Path directory) {
+            this.scratchDirectory = directory;
+            return this;
+        }
+
+        public Builder documentCache(DocumentCache cache) {
+            this.documentCache = cache;
+            return this;
+        }
+
+        public Builder resourceCache(SharedResourceCache cache) {
+            this.resourceCache = cache;
+            return this;
+        }
+
+        public Builder lazyLoading(boolean lazy) {
+            this.lazyLoading = lazy;
+            return this;
+        }
+
+        public Builder pageTimeout(Duration timeout) {
+            this.pageTimeout = timeout;
+            return this;
+        }
+
+        public Builder documentTimeout(Duration timeout) {
+            this.documentTimeout = timeout;
+            return this;
+        }
+
+        public Builder cancellationToken(CancellationToken token) {
+            this.cancellationToken = token;
+            return this;
+        }
+
+        public Builder bandHeight(int pixels) {
+            this.bandHeight = pixels;
+            return this;
+        }
+
+        public Builder addOutput(OutputSpec output) {
+            this.additionalOutputs.add(output);
+            return this;
+        }
+
+        public Builder scannedPageFastPath(boolean enable) {
+            this.scannedPageFastPath = enable;
+            return this;
+        }
+
+        public Builder deduplicatePages(boolean enable) {
+            this.deduplicatePages = enable;
+            return this;
+        }
+
+        public Builder blankPages(BlankPagePolicy policy) {
+            this.blankPagePolicy = policy;
+            return this;
+        }
+
+        public Builder blankPageInkRatio(double ratio) {
+            this.blankPageInkRatio = ratio;
+            return this;
+        }
+
         public ConversionConfig build() {
-            if (inputDirectory == null) {
+            if (inputSource == null) {
                 throw new IllegalStateException("Input directory must be specified");
             }
+            if (resumable && inputDirectory == null) {
+                throw new IllegalStateException("Resumable conversion requires a file input");
+            }
             if (outputDirectory == null) {
                 throw new IllegalStateException("Output directory must be specified");
             }
+            if (parallelism < 1) {
+                throw new IllegalStateException("Parallelism must be at least 1");
+            }
+            if (pipelineQueueCapacity < 1) {
+                throw new IllegalStateException("Pipeline queue capacity must be at least 1");
+            }
+            if (maxMainMemoryBytes < 0) {
+                throw new IllegalStateException("Max main memory bytes must not be negative");
+            }
+            if ((pageTimeout != null && !pageTimeout.isPositive())
+                    || (documentTimeout != null && !documentTimeout.isPositive())) {
+                throw new IllegalStateException("Timeouts must be positive");
+            }
+            if (dpi < 1) {
+                throw new IllegalStateException("DPI must be positive");
+            }
+            if (bandHeight < 0) {
+                throw new IllegalStateException("Band height must not be negative");
+            }
+            if (bandHeight > 0 && (rotationDegrees != 0 || enableCropping || executionMode == ExecutionMode.PIPELINED)) {
+                throw new IllegalStateException(
+                        "Banded rendering does not support rotation or cropping and cannot be pipelined");
+            }
+            if (croppingTolerance < 0 || croppingTolerance > 254) {
+                throw new IllegalStateException("Cropping tolerance must be between 0 and 254");
+            }
+            if (blankPagePolicy == null) {
+                throw new IllegalStateException("Blank page policy must be specified");
+            }
+            if (!(blankPageInkRatio >= 0 && blankPageInkRatio < 1)) {
+                throw new IllegalStateException("Blank page ink ratio must be at least 0 and less than 1");
+            }
+            if (deduplicatePages && executionMode == ExecutionMode.PIPELINED) {
+                throw new IllegalStateException("Page deduplication cannot be pipelined");
+            }
+            validateAdditionalOutputs();
             return new ConversionConfig(this);
         }
+
+        /**
+         * Additional outputs are scaled down and converted from the main output's pages,
+         * so they must not ask for more pixels or more colors than those pages carry.
+         */
+        private void validateAdditionalOutputs() {
+            if (additionalOutputs.isEmpty()) {
+                return;
+            }
+            if (bandHeight > 0) {
+                throw new IllegalStateException("Banded rendering cannot be combined with additional outputs");
+            }
+            for (OutputSpec output : additionalOutputs) {
+                if (output.getImageMode().ordinal() < imageMode.ordinal()) {
+                    throw new IllegalStateException("An output in " + output.getImageMode()
+                            + " mode cannot be derived from " + imageMode + " pages");
+                }
+                if (output.getDpi().isPresent() && targetSize != null) {
+                    throw new IllegalStateException("Outputs with a DPI require a main output with a DPI");
+                }
+                if (output.getDpi().filter(outputDpi -> outputDpi > dpi).isPresent()) {
+                    throw new IllegalStateException("Outputs are scaled down from the main output "
+                            + "and cannot exceed its " + dpi + " DPI");
+                }
+            }
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,24 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * Execution modes describing how the pages of a document are scheduled.
+ *
+ * @author dukui
+ */
+public enum ExecutionMode {
+    /**
+     * Pages are rendered, processed and stored one after another on the caller thread
+     */
+    SEQUENTIAL,
+
+    /**
+     * Pages are spread across worker threads, each worker owning its own document instance
+     */
+    PARALLEL,
+
+    /**
+     * Pages flow through separate render, process and store stages connected by bounded queues,
+     * so that encoding and writing of one page overlaps rendering of the next
+     */
+    PIPELINED
+}
@@ -0,0 +1,140 @@
+package io.github.dk900912.pdf2image.config;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Where the PDF to convert is read from.
+ * Besides files, documents can be converted straight from memory without a round trip through disk.
+ *
+ * @author dukui
+ */
+public sealed interface InputSource {
+
+    static InputSource of(Path path) {
+        return new FileInput(Objects.requireNonNull(path, "path"));
+    }
+
+    static InputSource of(byte[] bytes) {
+        return new ByteArrayInput(Objects.requireNonNull(bytes, "bytes"));
+    }
+
+    /**
+     * Creates a source reading the remaining bytes of a heap or direct buffer.
+     * The buffer's position and limit are not modified.
+     */
+    static InputSource of(ByteBuffer buffer) {
+        return new ByteBufferInput(Objects.requireNonNull(buffer, "buffer").slice());
+    }
+
+    /**
+     * Creates a source reading a stream. The stream is read completely and closed
+     * the first time the document is loaded, and the bytes are reused afterwards.
+     */
+    static InputSource of(InputStream stream) {
+        return new StreamInput(Objects.requireNonNull(stream, "stream"));
+    }
+
+    /**
+     * Creates a source over a PDFBox random access read. It can be loaded only once and is
+     * closed together with the loaded document, so multi-worker modes fall back to a single worker.
+     */
+    static InputSource of(RandomAccessRead read) {
+        return new RandomAccessInput(Objects.requireNonNull(read, "read"));
+    }
+
+    /**
+     * Returns whether the document can be loaded from this source more than once.
+     *
+     * @return {@code true} if every load gets an independent view of the same bytes
+     */
+    default boolean isReusable() {
+        return true;
+    }
+
+    /**
+     * A PDF file on disk.
+     */
+    record FileInput(Path path) implements InputSource {
+
+        @Override
+        public String toString() {
+            return path.toString();
+        }
+    }
+
+    /**
+     * A PDF held in a byte array, which is wrapped rather than copied.
+     */
+    record ByteArrayInput(byte[] bytes) implements InputSource {
+
+        @Override
+        public String toString() {
+            return "byte[" + bytes.length + "]";
+        }
+    }
+
+    /**
+     * A PDF held in a heap or direct byte buffer, which is wrapped rather than copied.
+     */
+    record ByteBufferInput(ByteBuffer buffer) implements InputSource {
+
+        @Override
+        public String toString() {
+            return (buffer.isDirect() ? "direct " : "") + "buffer[" + buffer.remaining() + "]";
+        }
+    }
+
+    /**
+     * A PDF read from a stream.
+     */
+    final class StreamInput implements InputSource {
+
+        private final InputStream stream;
+        private byte[] bytes;
+
+        private StreamInput(InputStream stream) {
+            this.stream = stream;
+        }
+
+        /**
+         * Returns the content of the stream, draining and closing it on first use.
+         *
+         * @exception IOException if the stream cannot be read
+         */
+        public synchronized byte[] bytes() throws IOException {
+            if (bytes == null) {
+                try (stream) {
+                    bytes = stream.readAllBytes();
+                }
+            }
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return "stream";
+        }
+    }
+
+    /**
+     * A PDF behind a PDFBox random access read.
+     */
+    record RandomAccessInput(RandomAccessRead read) implements InputSource {
+
+        @Override
+        public boolean isReusable() {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "random access read";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.github.dk900912.pdf2image.config;
+
+import java.awt.RenderingHints;
+
+/**
+ * Interpolation used when images embedded in a page are scaled during rendering.
+ *
+ * @author dukui
+ */
+public enum Interpolation {
+    /**
+     * Nearest neighbor - fastest, blocky when images are enlarged
+     */
+    NEAREST_NEIGHBOR(RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR),
+
+    /**
+     * Bilinear - balanced speed and smoothness
+     */
+    BILINEAR(RenderingHints.VALUE_INTERPOLATION_BILINEAR),
+
+    /**
+     * Bicubic - smoothest, slowest
+     */
+    BICUBIC(RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+
+    private final Object hintValue;
+
+    Interpolation(Object hintValue) {
+        this.hintValue = hintValue;
+    }
+
+    public Object getHintValue() {
+        return hintValue;
+    }
+}
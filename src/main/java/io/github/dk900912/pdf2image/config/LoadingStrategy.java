@@ -0,0 +1,28 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * Strategies for loading the input document, trading heap usage for disk or page-cache usage.
+ *
+ * @author dukui
+ */
+public enum LoadingStrategy {
+    /**
+     * The input is read through a buffered file and PDFBox keeps its scratch data on the heap
+     */
+    HEAP_ONLY,
+
+    /**
+     * Scratch data stays on the heap up to the configured byte limit and spills to a temp file beyond it
+     */
+    MIXED,
+
+    /**
+     * All scratch data is written to a temp file, keeping the heap footprint independent of the document
+     */
+    TEMP_FILE,
+
+    /**
+     * The input file is memory-mapped instead of buffered on the heap, and scratch data is handled as in {@link #MIXED}
+     */
+    MEMORY_MAPPED
+}
@@ -0,0 +1,166 @@
+package io.github.dk900912.pdf2image.config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control for page bitmaps.
+ * Before a page is rendered the converter reserves its estimated raster size and releases it
+ * once the page has been stored; a reservation that does not fit blocks until enough memory
+ * is released, which throttles concurrent conversions down to what the budget allows.
+ * Admission also waits while the observed heap usage would cross the configured fraction of
+ * the maximum heap. Sharing one instance between several configurations makes it process-wide.
+ *
+ * @author dukui
+ */
+public final class MemoryBudget {
+
+    /**
+     * Interval in which a blocked reservation re-checks the heap, since garbage collection
+     * frees memory without signalling.
+     */
+    private static final long HEAP_RECHECK_MILLIS = 100;
+
+    private final long capacityBytes;
+    private final double heapUsageThreshold;
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition released = lock.newCondition();
+
+    private long reservedBytes;
+
+    private MemoryBudget(long capacityBytes, double heapUsageThreshold) {
+        if (capacityBytes < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        if (heapUsageThreshold <= 0 || heapUsageThreshold > 1) {
+            throw new IllegalArgumentException("Heap usage threshold must be in (0, 1]");
+        }
+        this.capacityBytes = capacityBytes;
+        this.heapUsageThreshold = heapUsageThreshold;
+    }
+
+    /**
+     * Creates a budget of a fixed number of bytes that also backs off above 90% heap usage.
+     *
+     * @param capacityBytes the number of bytes page bitmaps may occupy at the same time
+     * @return the memory budget
+     */
+    public static MemoryBudget ofBytes(long capacityBytes) {
+        return new MemoryBudget(capacityBytes, 0.9);
+    }
+
+    /**
+     * Creates a budget with an explicit heap usage threshold.
+     *
+     * @param capacityBytes the number of bytes page bitmaps may occupy at the same time
+     * @param heapUsageThreshold the fraction of the maximum heap above which admission waits
+     * @return the memory budget
+     */
+    public static MemoryBudget of(long capacityBytes, double heapUsageThreshold) {
+        return new MemoryBudget(capacityBytes, heapUsageThreshold);
+    }
+
+    /**
+     * Creates a budget sized as a fraction of the maximum heap.
+     *
+     * @param fraction the share of the maximum heap reserved for page bitmaps
+     * @return the memory budget
+     */
+    public static MemoryBudget fractionOfHeap(double fraction) {
+        if (fraction <= 0 || fraction > 1) {
+            throw new IllegalArgumentException("Heap fraction must be in (0, 1]");
+        }
+        return ofBytes((long) (Runtime.getRuntime().maxMemory() * fraction));
+    }
+
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    public double getHeapUsageThreshold() {
+        return heapUsageThreshold;
+    }
+
+    /**
+     * Returns the number of bytes currently held by outstanding reservations.
+     */
+    public long getReservedBytes() {
+        lock.lock();
+        try {
+            return reservedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves memory for one page, blocking until it fits the budget and the heap.
+     * A request is always admitted when nothing else is reserved, so that a page larger
+     * than the whole budget is rendered alone instead of waiting forever.
+     *
+     * @param bytes the estimated size of the page bitmap
+     * @return the reservation, to be closed once the bitmap is no longer needed
+     * @exception InterruptedException if interrupted while waiting
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (reservedBytes > 0 && (reservedBytes + bytes > capacityBytes || isHeapUnderPressure(bytes))) {
+                released.await(HEAP_RECHECK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            reservedBytes += bytes;
+            return new Reservation(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether allocating the given number of bytes would push the heap past the threshold.
+     */
+    private boolean isHeapUnderPressure(long bytes) {
+        MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+        long max = heap.getMax() > 0 ? heap.getMax() : heap.getCommitted();
+        return heap.getUsed() + bytes > max * heapUsageThreshold;
+    }
+
+    private void release(long bytes) {
+        lock.lock();
+        try {
+            reservedBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Memory held for one page; closing it more than once has no further effect.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final long bytes;
+        private boolean closed;
+
+        private Reservation(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(bytes);
+            }
+        }
+    }
+}
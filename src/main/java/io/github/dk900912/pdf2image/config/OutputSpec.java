@@ -0,0 +1,130 @@
+package io.github.dk900912.pdf2image.config;
+
+import io.github.dk900912.pdf2image.storage.ImageStorage;
+import io.github.dk900912.pdf2image.storage.LocalFileSystemStorage;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * An additional output derived from the pages rendered for the main output of a conversion.
+ * Pages are parsed and rendered once; every additional output scales the processed page down
+ * and re-encodes it in its own format and color mode, then hands it to its own storage.
+ *
+ * @author dukui
+ */
+public final class OutputSpec {
+    private final Path outputDirectory;
+    private final ImageFormat imageFormat;
+    private final ImageMode imageMode;
+    private final Integer dpi;
+    private final TargetSize targetSize;
+    private final ImageStorage storage;
+
+    private OutputSpec(Builder builder) {
+        this.outputDirectory = builder.outputDirectory;
+        this.imageFormat = builder.imageFormat;
+        this.imageMode = builder.imageMode;
+        this.dpi = builder.dpi;
+        this.targetSize = builder.targetSize;
+        this.storage = builder.storage;
+    }
+
+    public Path getOutputDirectory() {
+        return outputDirectory;
+    }
+
+    public ImageFormat getImageFormat() {
+        return imageFormat;
+    }
+
+    public ImageMode getImageMode() {
+        return imageMode;
+    }
+
+    /**
+     * Returns the DPI of this output, which must not exceed the DPI of the main output.
+     *
+     * @return the dots per inch, unless a target size is used
+     */
+    public Optional<Integer> getDpi() {
+        return Optional.ofNullable(dpi);
+    }
+
+    /**
+     * Returns the size the processed page is fitted to, measured on the final image.
+     *
+     * @return the target size, unless a DPI is used
+     */
+    public Optional<TargetSize> getTargetSize() {
+        return Optional.ofNullable(targetSize);
+    }
+
+    public ImageStorage getStorage() {
+        return storage;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Path outputDirectory;
+        private ImageFormat imageFormat = ImageFormat.PNG;
+        private ImageMode imageMode = ImageMode.COLOR;
+        private Integer dpi;
+        private TargetSize targetSize;
+        private ImageStorage storage = new LocalFileSystemStorage();
+
+        public Builder outputDirectory(Path path) {
+            this.outputDirectory = path;
+            return this;
+        }
+
+        public Builder imageFormat(ImageFormat format) {
+            this.imageFormat = format;
+            return this;
+        }
+
+        public Builder imageMode(ImageMode mode) {
+            this.imageMode = mode;
+            return this;
+        }
+
+        public Builder resolution(Resolution resolution) {
+            this.dpi = resolution.getDpi();
+            return this;
+        }
+
+        public Builder dpi(int dpi) {
+            this.dpi = dpi;
+            return this;
+        }
+
+        public Builder targetSize(TargetSize size) {
+            this.targetSize = size;
+            return this;
+        }
+
+        public Builder storage(ImageStorage storage) {
+            this.storage = storage;
+            return this;
+        }
+
+        public OutputSpec build() {
+            if (outputDirectory == null) {
+                throw new IllegalStateException("Output directory must be specified");
+            }
+            if (storage == null) {
+                throw new IllegalStateException("Storage must be specified");
+            }
+            if ((dpi == null) == (targetSize == null)) {
+                throw new IllegalStateException("Either a DPI or a target size must be specified");
+            }
+            if (dpi != null && dpi < 1) {
+                throw new IllegalStateException("DPI must be positive");
+            }
+            return new OutputSpec(this);
+        }
+    }
+}
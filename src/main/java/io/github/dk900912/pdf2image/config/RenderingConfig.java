@@ -1,5 +1,7 @@
 package io.github.dk900912.pdf2image.config;
 
+import org.apache.pdfbox.rendering.RenderDestination;
+
 /**
  * Configuration for rendering quality settings.
  * Includes anti-aliasing and other rendering hints.
@@ -10,11 +12,17 @@ public final class RenderingConfig {
     private final boolean enableAntiAliasing;
     private final boolean enableTextAntiAliasing;
     private final boolean enableFractionalMetrics;
+    private final Interpolation interpolation;
+    private final boolean enableSubsampling;
+    private final RenderDestination renderDestination;
 
     private RenderingConfig(Builder builder) {
         this.enableAntiAliasing = builder.enableAntiAliasing;
         this.enableTextAntiAliasing = builder.enableTextAntiAliasing;
         this.enableFractionalMetrics = builder.enableFractionalMetrics;
+        this.interpolation = builder.interpolation;
+        this.enableSubsampling = builder.enableSubsampling;
+        this.renderDestination = builder.renderDestination;
     }
 
     public boolean isEnableAntiAliasing() {
@@ -29,6 +37,29 @@ public final class RenderingConfig {
         return enableFractionalMetrics;
     }
 
+    public Interpolation getInterpolation() {
+        return interpolation;
+    }
+
+    /**
+     * Returns whether embedded images may be subsampled when they are drawn smaller than their
+     * native resolution, which skips decoding most of their pixels.
+     *
+     * @return {@code true} if subsampling is allowed
+     */
+    public boolean isEnableSubsampling() {
+        return enableSubsampling;
+    }
+
+    /**
+     * Returns the destination optional content is evaluated for.
+     *
+     * @return the render destination
+     */
+    public RenderDestination getRenderDestination() {
+        return renderDestination;
+    }
+
     /**
      * Creates a default configuration with all quality enhancements enabled.
      *
@@ -52,6 +83,23 @@ public final class RenderingConfig {
                 .enableAntiAliasing(false)
                 .enableTextAntiAliasing(false)
                 .enableFractionalMetrics(false)
+                .interpolation(Interpolation.BILINEAR)
+                .build();
+    }
+
+    /**
+     * Creates a draft configuration for thumbnails and previews, additionally using
+     * nearest neighbor interpolation and subsampled images.
+     *
+     * @return draft rendering configuration
+     */
+    public static RenderingConfig draftConfig() {
+        return builder()
+                .enableAntiAliasing(false)
+                .enableTextAntiAliasing(false)
+                .enableFractionalMetrics(false)
+                .interpolation(Interpolation.NEAREST_NEIGHBOR)
+                .enableSubsampling(true)
                 .build();
     }
 
@@ -63,6 +111,9 @@ public final class RenderingConfig {
         private boolean enableAntiAliasing = true;
         private boolean enableTextAntiAliasing = true;
         private boolean enableFractionalMetrics = true;
+        private Interpolation interpolation = Interpolation.BICUBIC;
+        private boolean enableSubsampling = false;
+        private RenderDestination renderDestination = RenderDestination.EXPORT;
 
         public Builder enableAntiAliasing(boolean enable) {
             this.enableAntiAliasing = enable;
@@ -79,6 +130,21 @@ public final class RenderingConfig {
             return this;
         }
 
+        public Builder interpolation(Interpolation interpolation) {
+            this.interpolation = interpolation;
+            return this;
+        }
+
+        public Builder enableSubsampling(boolean enable) {
+            this.enableSubsampling = enable;
+            return this;
+        }
+
+        public Builder renderDestination(RenderDestination destination) {
+            this.renderDestination = destination;
+            return this;
+        }
+
         public RenderingConfig build() {
             return new RenderingConfig(this);
         }
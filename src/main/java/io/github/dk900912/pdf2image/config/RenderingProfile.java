@@ -0,0 +1,37 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * Named rendering profiles trading quality for speed.
+ *
+ * @author dukui
+ */
+public enum RenderingProfile {
+    /**
+     * Thumbnails and search-index previews: no anti-aliasing, nearest neighbor
+     * interpolation and subsampled images
+     */
+    DRAFT,
+
+    /**
+     * No anti-aliasing with bilinear interpolation
+     */
+    FAST,
+
+    /**
+     * All quality enhancements with bicubic interpolation
+     */
+    QUALITY;
+
+    /**
+     * Returns the rendering configuration of this profile.
+     *
+     * @return the rendering configuration
+     */
+    public RenderingConfig toConfig() {
+        return switch (this) {
+            case DRAFT -> RenderingConfig.draftConfig();
+            case FAST -> RenderingConfig.fastConfig();
+            case QUALITY -> RenderingConfig.defaultConfig();
+        };
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.dk900912.pdf2image.config;
+
+/**
+ * Size the rendered pages are fitted to instead of a fixed DPI.
+ * The scale is computed per page from its crop box as displayed, so every page is rendered
+ * at exactly the size needed, e.g. for thumbnails, without downscaling afterwards.
+ * The configured rotation is applied after fitting.
+ *
+ * @author dukui
+ */
+public sealed interface TargetSize {
+
+    static TargetSize fitWidth(int width) {
+        return new FitWidth(requirePositive(width, "Width"));
+    }
+
+    static TargetSize fitHeight(int height) {
+        return new FitHeight(requirePositive(height, "Height"));
+    }
+
+    /**
+     * Creates a size scaling pages to the largest size fitting into the box, keeping their aspect ratio.
+     */
+    static TargetSize fitBox(int width, int height) {
+        return new FitBox(requirePositive(width, "Width"), requirePositive(height, "Height"));
+    }
+
+    /**
+     * Creates a size scaling pages to the largest size with at most the given number of pixels.
+     */
+    static TargetSize maxPixels(long pixels) {
+        if (pixels < 1) {
+            throw new IllegalArgumentException("Pixels must be positive");
+        }
+        return new MaxPixels(pixels);
+    }
+
+    /**
+     * Returns the scale from PDF points to pixels for a page of the given size.
+     * Half a pixel is added to fitted edges, since rendering floors the scaled size.
+     *
+     * @param widthPt the width of the page in points
+     * @param heightPt the height of the page in points
+     * @return the scale factor
+     */
+    float scale(float widthPt, float heightPt);
+
+    /**
+     * Scales pages to a fixed width.
+     */
+    record FitWidth(int width) implements TargetSize {
+
+        @Override
+        public float scale(float widthPt, float heightPt) {
+            return (width + 0.5f) / widthPt;
+        }
+    }
+
+    /**
+     * Scales pages to a fixed height.
+     */
+    record FitHeight(int height) implements TargetSize {
+
+        @Override
+        public float scale(float widthPt, float heightPt) {
+            return (height + 0.5f) / heightPt;
+        }
+    }
+
+    /**
+     * Scales pages to fit into a box.
+     */
+    record FitBox(int width, int height) implements TargetSize {
+
+        @Override
+        public float scale(float widthPt, float heightPt) {
+            return Math.min((width + 0.5f) / widthPt, (height + 0.5f) / heightPt);
+        }
+    }
+
+    /**
+     * Scales pages to a maximum number of pixels.
+     */
+    record MaxPixels(long pixels) implements TargetSize {
+
+        @Override
+        public float scale(float widthPt, float heightPt) {
+            return (float) Math.sqrt(pixels / ((double) widthPt * heightPt));
+        }
+    }
+
+    private static int requirePositive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+}
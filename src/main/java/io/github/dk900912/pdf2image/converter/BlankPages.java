@@ -0,0 +1,183 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.config.BlankPagePolicy;
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.processor.ImageDownscaler;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Detects blank pages and applies the configured {@link BlankPagePolicy}.
+ * A page is checked twice: before rendering, a page whose content stream paints nothing is
+ * blank without looking at a single pixel; after processing, a page with too few dark pixels
+ * is blank as well. Blank pages are recorded under {@code "blank-pages"}.
+ *
+ * @author dukui
+ */
+final class BlankPages {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlankPages.class);
+
+    /**
+     * Luminance below which a pixel counts as ink.
+     */
+    private static final int INK_LEVEL = 0xC0;
+
+    /**
+     * Factor by which blank pages are scaled down under {@link BlankPagePolicy#DOWNSCALE}.
+     */
+    static final int DOWNSCALE_FACTOR = 8;
+
+    /**
+     * Content stream operators that paint: text showing, path painting, shadings, XObjects and inline images.
+     */
+    private static final Set<String> MARKING_OPERATORS = Set.of(
+            "Tj", "TJ", "'", "\"", "S", "s", "f", "F", "f*", "B", "B*", "b", "b*", "sh", "Do", "BI");
+
+    private BlankPages() {
+    }
+
+    /**
+     * Checks the content of the current page before it is rendered.
+     *
+     * @return {@code true} if the page is blank and is neither rendered nor stored
+     */
+    static boolean skipBeforeRendering(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (config.getBlankPagePolicy() == BlankPagePolicy.KEEP) {
+            return false;
+        }
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        int pageIndex = (int) ((ContextBase) context).get("page-index");
+        try {
+            if (!paintsNothing(document.getPage(pageIndex))) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to read page " + (pageIndex + 1), e);
+        }
+        record(context);
+        if (config.getBlankPagePolicy() == BlankPagePolicy.SKIP) {
+            return true;
+        }
+        // marks the page for applyAfterProcessing, the caller removes the marker once the page is done
+        ((ContextBase) context).put("blank-page", Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * Checks the processed page under {@code "image"}, unless it is already known to be blank,
+     * and applies the policy to a blank page: the page is dropped, kept, or replaced by a
+     * smaller image.
+     *
+     * @return {@code true} if the page is to be stored
+     */
+    static boolean applyAfterProcessing(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        BlankPagePolicy policy = config.getBlankPagePolicy();
+        if (policy == BlankPagePolicy.KEEP) {
+            return true;
+        }
+        BufferedImage image = (BufferedImage) ((ContextBase) context).get("image");
+        boolean blank = Boolean.TRUE.equals(((ContextBase) context).remove("blank-page"));
+        if (!blank && image != null && isBlank(image, config.getBlankPageInkRatio())) {
+            record(context);
+            blank = true;
+        }
+        if (!blank) {
+            return true;
+        }
+        if (policy == BlankPagePolicy.DOWNSCALE && image != null) {
+            ((ContextBase) context).put("image", ImageDownscaler.scale(image,
+                    Math.max(image.getWidth() / DOWNSCALE_FACTOR, 1),
+                    Math.max(image.getHeight() / DOWNSCALE_FACTOR, 1),
+                    config.getImageMode().getBufferedImageType()));
+        }
+        return policy != BlankPagePolicy.SKIP;
+    }
+
+    /**
+     * Returns whether a page has neither annotations nor painting operators in its content stream.
+     */
+    static boolean paintsNothing(PDPage page) throws IOException {
+        if (!page.getAnnotations().isEmpty()) {
+            return false;
+        }
+        PDFStreamParser parser = new PDFStreamParser(page);
+        Object token;
+        while ((token = parser.parseNextToken()) != null) {
+            if (token instanceof Operator operator && MARKING_OPERATORS.contains(operator.getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether at most the given share of the pixels of an image is dark.
+     * Rows are scanned top to bottom and the scan stops as soon as the limit is exceeded,
+     * so pages with content are usually rejected within their first rows of text.
+     */
+    static boolean isBlank(BufferedImage image, double maxInkRatio) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        long maxInk = (long) (maxInkRatio * width * height);
+        WritableRaster raster = image.getRaster();
+        int type = image.getType();
+        boolean binary = type == BufferedImage.TYPE_BYTE_BINARY;
+        int[] row = new int[width];
+        long ink = 0;
+        for (int y = 0; y < height; y++) {
+            switch (type) {
+                case BufferedImage.TYPE_BYTE_BINARY, BufferedImage.TYPE_BYTE_GRAY -> {
+                    raster.getSamples(0, y, width, 1, 0, row);
+                    for (int x = 0; x < width; x++) {
+                        if (binary ? row[x] == 0 : row[x] < INK_LEVEL) {
+                            ink++;
+                        }
+                    }
+                }
+                default -> {
+                    if (type == BufferedImage.TYPE_INT_RGB) {
+                        raster.getDataElements(0, y, width, 1, row);
+                    } else {
+                        image.getRGB(0, y, width, 1, row, 0, width);
+                    }
+                    for (int x = 0; x < width; x++) {
+                        int rgb = row[x];
+                        int luminance = (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+                        if (luminance < INK_LEVEL) {
+                            ink++;
+                        }
+                    }
+                }
+            }
+            if (ink > maxInk) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void record(Context context) {
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        logger.debug("Page {} is blank", pageNumber);
+        Set<Integer> blankPages = (Set<Integer>) ((ContextBase) context).get("blank-pages");
+        if (blankPages != null) {
+            blankPages.add(pageNumber);
+        }
+    }
+}
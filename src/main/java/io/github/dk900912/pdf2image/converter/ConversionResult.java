@@ -0,0 +1,58 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Outcome of converting a single document as part of a batch.
+ *
+ * @param context the context the document was converted with
+ * @param failure the failure, or {@code null} if the conversion succeeded
+ * @author dukui
+ */
+public record ConversionResult(Context context, Pdf2ImageException failure) {
+
+    public static ConversionResult success(Context context) {
+        return new ConversionResult(context, null);
+    }
+
+    public static ConversionResult failure(Context context, Pdf2ImageException failure) {
+        return new ConversionResult(context, failure);
+    }
+
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    public Optional<Pdf2ImageException> getFailure() {
+        return Optional.ofNullable(failure);
+    }
+
+    /**
+     * Returns the pages that were abandoned after running past their render deadline.
+     *
+     * @return the page numbers (1-based), in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> getTimedOutPages() {
+        Set<Integer> timedOutPages = (Set<Integer>) ((ContextBase) context).get("timed-out-pages");
+        return timedOutPages == null ? List.of() : List.copyOf(timedOutPages);
+    }
+
+    /**
+     * Returns the pages detected as blank, which were skipped, marked or downscaled
+     * according to the configured blank page policy.
+     *
+     * @return the page numbers (1-based), in ascending order
+     */
+    @SuppressWarnings("unchecked")
+    public List<Integer> getBlankPages() {
+        Set<Integer> blankPages = (Set<Integer>) ((ContextBase) context).get("blank-pages");
+        return blankPages == null ? List.of() : List.copyOf(blankPages);
+    }
+}
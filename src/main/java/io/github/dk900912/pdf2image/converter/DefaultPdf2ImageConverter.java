@@ -1,13 +1,18 @@
 package io.github.dk900912.pdf2image.converter;
 
 import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.ExecutionMode;
+import io.github.dk900912.pdf2image.config.InputSource;
+import io.github.dk900912.pdf2image.config.MemoryBudget;
 import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.ConversionCancelledException;
+import io.github.dk900912.pdf2image.exception.PageTimeoutException;
 import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
 import io.github.dk900912.pdf2image.processor.ImageProcessor;
 import io.github.dk900912.pdf2image.renderer.PageRenderer;
+import io.github.dk900912.pdf2image.renderer.RenderGuard;
 import io.github.dk900912.pdf2image.storage.ImageStorage;
-import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +21,23 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Default implementation of PdfToImageConverter.
@@ -49,20 +71,28 @@ public class DefaultPdf2ImageConverter implements Pdf2ImageConverter {
             throw new Pdf2ImageException("Conversion configuration cannot be null");
         }
 
-        Path pdfPath = config.getInputDirectory();
+        InputSource input = config.getInputSource();
 
-        validateInput(pdfPath);
+        validateInput(input);
 
-        logger.info("Starting PDF to image conversion: {}", pdfPath);
-        logger.info("Configuration - Format: {}, Mode: {}, Resolution: {} DPI",
+        logger.info("Starting PDF to image conversion: {}", input);
+        logger.info("Configuration - Format: {}, Mode: {}, Resolution: {}",
                 config.getImageFormat(),
                 config.getImageMode(),
-                config.getResolution().getDpi());
+                config.getTargetSize().map(String::valueOf).orElse(config.getDpi() + " DPI"));
 
+        ((ContextBase) context).put("document-deadline", RenderGuard.startDocument(config));
+        ((ContextBase) context).put("timed-out-pages", new ConcurrentSkipListSet<Integer>());
+        ((ContextBase) context).put("blank-pages", new ConcurrentSkipListSet<Integer>());
         imageStorage.prepare(context);
 
-        try (PDDocument document = loadDocument(pdfPath)) {
+        PDDocument document = null;
+        try {
+            OutputFanOut.open(context);
+            PageDeduplication.open(context);
+            document = DocumentLoader.load(config);
             ((ContextBase) context).put("document", document);
+            pageRenderer.prepare(context);
 
             int totalPages = document.getNumberOfPages();
             logger.info("PDF has {} pages", totalPages);
@@ -71,23 +101,116 @@ public class DefaultPdf2ImageConverter implements Pdf2ImageConverter {
             ((ContextBase) context).put("page-range", pageRange);
             logger.info("Processing pages {} to {}", pageRange.start, pageRange.end);
 
-            processPage(context);
+            processPages(context);
 
-            logger.info("Successfully converted {} pages", pageRange.end - pageRange.start + 1);
+            Set<?> timedOutPages = (Set<?>) ((ContextBase) context).get("timed-out-pages");
+            if (timedOutPages.isEmpty()) {
+                logger.info("Successfully converted {} pages", pageRange.pageCount());
+            } else {
+                logger.warn("Converted {} pages, abandoned pages {} after their render deadline",
+                        pageRange.pageCount() - timedOutPages.size(), timedOutPages);
+            }
+            Set<?> blankPages = (Set<?>) ((ContextBase) context).get("blank-pages");
+            if (!blankPages.isEmpty()) {
+                logger.info("Detected blank pages {}, policy: {}", blankPages, config.getBlankPagePolicy());
+            }
         } catch (IOException e) {
-            throw new Pdf2ImageException("Failed to process PDF: " + pdfPath, e);
+            throw new Pdf2ImageException("Failed to process PDF: " + input, e);
         } finally {
+            pageRenderer.cleanup(context);
+            DocumentLoader.release(config, document);
+            OutputFanOut.cleanup(context);
+            ((ContextBase) context).remove("page-deduplication");
             imageStorage.cleanup(context);
         }
     }
 
+    /**
+     * Opens a PDF file for pull-based page consumption instead of writing to the image storage.
+     * Pages are rendered and processed one at a time as the iterator advances;
+     * the caller must close the iterator if it stops before the last page.
+     *
+     * @param context the conversion context
+     * @return an iterator over the processed pages of the configured page range
+     * @exception Pdf2ImageException if the document cannot be opened
+     */
+    public PageIterator openPages(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (config == null) {
+            throw new Pdf2ImageException("Conversion configuration cannot be null");
+        }
+
+        InputSource input = config.getInputSource();
+        validateInput(input);
+
+        PDDocument document;
+        try {
+            document = DocumentLoader.load(config);
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to process PDF: " + input, e);
+        }
+        try {
+            PageRange pageRange = determinePageRange(config, document.getNumberOfPages());
+            ContextBase pagesContext = new ContextBase((ContextBase) context);
+            pagesContext.put("document-deadline", RenderGuard.startDocument(config));
+            pagesContext.put("document", document);
+            pagesContext.put("page-range", pageRange);
+            pageRenderer.prepare(pagesContext);
+            return new PageIterator(this, pagesContext, pageRange, document);
+        } catch (RuntimeException e) {
+            DocumentLoader.release(config, document);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the processed pages of a PDF file lazily, in page order.
+     * The stream must be closed to release the document, e.g. with try-with-resources.
+     *
+     * @param context the conversion context
+     * @return a sequential stream of processed pages
+     */
+    public Stream<PageResult> stream(Context context) {
+        PageIterator pages = openPages(context);
+        Spliterator<PageResult> spliterator = Spliterators.spliterator(pages, pages.pageCount(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(pages::close);
+    }
+
+    /**
+     * Publishes the processed pages of a PDF file with demand-driven backpressure,
+     * delivering signals on virtual threads.
+     *
+     * @param context the conversion context
+     * @return a single-subscriber publisher of processed pages
+     */
+    public Flow.Publisher<PageResult> publish(Context context) {
+        return publish(context, command -> Thread.ofVirtual().start(command));
+    }
+
+    /**
+     * Publishes the processed pages of a PDF file with demand-driven backpressure.
+     * Nothing is loaded before the first request and a page is only rendered once it has been requested.
+     *
+     * @param context the conversion context
+     * @param executor the executor rendering pages and delivering signals
+     * @return a single-subscriber publisher of processed pages
+     */
+    public Flow.Publisher<PageResult> publish(Context context, Executor executor) {
+        return new PagePublisher(() -> openPages(context), executor);
+    }
+
     /**
      * Validates input parameters.
      */
-    private void validateInput(Path pdfPath) {
-        if (pdfPath == null) {
-            throw new Pdf2ImageException("PDF path cannot be null");
+    private void validateInput(InputSource input) {
+        if (input == null) {
+            throw new Pdf2ImageException("PDF input cannot be null");
+        }
+        if (!(input instanceof InputSource.FileInput file)) {
+            return;
         }
+        Path pdfPath = file.path();
         if (!Files.exists(pdfPath)) {
             throw new Pdf2ImageException("PDF file does not exist: " + pdfPath);
         }
@@ -96,14 +219,6 @@ public class DefaultPdf2ImageConverter implements Pdf2ImageConverter {
         }
     }
 
-    /**
-     * Loads the PDF document.
-     */
-    private PDDocument loadDocument(Path pdfPath) throws IOException {
-        logger.debug("Loading PDF document: {}", pdfPath);
-        return Loader.loadPDF(pdfPath.toFile());
-    }
-
     /**
      * Determines the page range to process based on configuration.
      */
@@ -126,38 +241,271 @@ public class DefaultPdf2ImageConverter implements Pdf2ImageConverter {
     }
 
     /**
-     * Processes a single page: render, process, and store.
+     * Processes all pages of the page range according to the configured execution mode.
      */
-    private void processPage(Context context) {
-
+    private void processPages(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
         PageRange pageRange = (PageRange) ((ContextBase) context).get("page-range");
 
-        for (int pageIndex = pageRange.start; pageIndex <= pageRange.end; pageIndex++) {
-            int pageNumber = pageIndex + 1; // 1-based for display
-            ((ContextBase) context).put("page-index", pageIndex);
-            logger.debug("Processing page {}", pageNumber);
+        int workers = Math.min(config.getParallelism(), pageRange.pageCount());
+        if (!config.getInputSource().isReusable() && workers > 1) {
+            // every extra worker would need its own document instance
+            logger.info("Input source can only be loaded once, processing pages with a single worker");
+            workers = 1;
+        }
+        if (config.getExecutionMode() == ExecutionMode.PIPELINED) {
+            new PagePipeline(pageRenderer, imageProcessor, imageStorage, workers, config.getPipelineQueueCapacity())
+                    .run(context, pageRange, () -> DocumentLoader.load(config));
+        } else if (config.getExecutionMode() == ExecutionMode.PARALLEL && workers > 1) {
+            processPagesInParallel(context, pageRange, workers);
+        } else {
+            for (int pageIndex = pageRange.start; pageIndex <= pageRange.end; pageIndex++) {
+                processPage(context, pageIndex);
+            }
+        }
+    }
+
+    /**
+     * Processes the page range on several workers.
+     * PDDocument is not thread-safe, so every worker renders from its own document
+     * instance and its own copy of the context; pages are handed out one at a time
+     * so that a few expensive pages do not stall a whole partition.
+     */
+    private void processPagesInParallel(Context context, PageRange pageRange, int workers) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        logger.info("Processing pages in parallel with {} workers", workers);
+
+        ExecutorService executor = config.getExecutor().orElse(null);
+        boolean ownedExecutor = executor == null;
+        if (ownedExecutor) {
+            executor = Executors.newFixedThreadPool(workers);
+        }
+
+        AtomicInteger nextPageIndex = new AtomicInteger(pageRange.start);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        try {
+            for (int worker = 0; worker < workers; worker++) {
+                // the caller thread only waits, so the first worker may reuse the loaded document
+                boolean reuseDocument = worker == 0;
+                futures.add(executor.submit(() ->
+                        processPagesOnWorker(context, pageRange, nextPageIndex, failed, reuseDocument)));
+            }
+            awaitWorkers(futures);
+        } finally {
+            if (ownedExecutor) {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Pulls pages from the shared counter until the range is exhausted or another worker failed.
+     */
+    private void processPagesOnWorker(Context context,
+                                      PageRange pageRange,
+                                      AtomicInteger nextPageIndex,
+                                      AtomicBoolean failed,
+                                      boolean reuseDocument) {
+        ContextBase workerContext = new ContextBase((ContextBase) context);
+        ConversionConfig config = (ConversionConfig) workerContext.get("config");
+        PDDocument document = null;
+        try {
+            if (!reuseDocument) {
+                document = DocumentLoader.load(config);
+                workerContext.put("document", document);
+                pageRenderer.prepare(workerContext);
+            }
+            int pageIndex;
+            while (!failed.get() && (pageIndex = nextPageIndex.getAndIncrement()) <= pageRange.end) {
+                processPage(workerContext, pageIndex);
+            }
+        } catch (IOException e) {
+            failed.set(true);
+            throw new Pdf2ImageException("Failed to load PDF for worker: " + config.getInputSource(), e);
+        } catch (RuntimeException e) {
+            failed.set(true);
+            throw e;
+        } finally {
+            if (document != null) {
+                pageRenderer.cleanup(workerContext);
+                DocumentLoader.release(config, document);
+            }
+        }
+    }
 
+    /**
+     * Waits for all workers and rethrows the first failure, keeping the page number in the message.
+     */
+    private void awaitWorkers(List<Future<?>> futures) {
+        Pdf2ImageException failure = null;
+        for (Future<?> future : futures) {
             try {
-                // Render the page
-                BufferedImage image = pageRenderer.renderPage(context);
-                ((ContextBase) context).put("image", image);
+                future.get();
+            } catch (ExecutionException e) {
+                Pdf2ImageException cause = e.getCause() instanceof Pdf2ImageException pe
+                        ? pe
+                        : new Pdf2ImageException("Page worker failed", e.getCause());
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(f -> f.cancel(true));
+                throw new Pdf2ImageException("Interrupted while waiting for page workers", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
-                // Process the image (rotation, cropping, etc.)
-                BufferedImage processedImage = imageProcessor.process(context);
-                ((ContextBase) context).put("image", processedImage);
+    /**
+     * Processes a single page: render, process, and store.
+     * A page running past its render deadline is recorded under "timed-out-pages" and skipped.
+     */
+    private void processPage(Context context, int pageIndex) {
+        int pageNumber = pageIndex + 1; // 1-based for display
+        ((ContextBase) context).put("page-index", pageIndex);
+        logger.debug("Processing page {}", pageNumber);
 
-                // Store the image
-                imageStorage.store(context);
+        RenderGuard.checkDocument(context);
+        try {
+            if (imageStorage.isStored(context) && OutputFanOut.isStored(context)) {
+                logger.debug("Page {} was already converted, skipping", pageNumber);
+                return;
+            }
 
-                logger.debug("Successfully processed page {}", pageNumber);
-            } catch (Exception e) {
-                throw new Pdf2ImageException("Failed to process page " + pageNumber, e);
+            try {
+                if (BlankPages.skipBeforeRendering(context)) {
+                    logger.debug("Page {} paints nothing, skipping", pageNumber);
+                    return;
+                }
+                if (PageDeduplication.storeDuplicate(context, imageStorage)) {
+                    return;
+                }
+
+                boolean stored = false;
+                try {
+                    MemoryBudget.Reservation reservation = PageAdmission.admit(context);
+                    if (reservation != null) {
+                        ((ContextBase) context).put("memory-reservation", reservation);
+                    }
+                    ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+                    int bandHeight = config.getBandHeight();
+                    if (extractEncodedPage(context)) {
+                        logger.debug("Page {} is stored as copied from the document", pageNumber);
+                    } else if (bandHeight > 0) {
+                        // the storage renders the bands while it writes them, the page never exists as a whole
+                        ((ContextBase) context).put("page-bands", pageRenderer.renderBands(context, bandHeight));
+                    } else {
+                        renderAndProcess(context);
+                    }
+
+                    // Store the image
+                    if (BlankPages.applyAfterProcessing(context)) {
+                        imageStorage.store(context);
+                        OutputFanOut.store(context);
+                        stored = true;
+                    }
+                } finally {
+                    ((ContextBase) context).remove("image");
+                    ((ContextBase) context).remove("page-bands");
+                    ((ContextBase) context).remove("encoded-page");
+                    ((ContextBase) context).remove("rotation-applied");
+                    releaseReservation(context);
+                    PageDeduplication.complete(context, stored);
+                }
+            } finally {
+                // the marker of a blank page must not carry over to the next page on this context
+                ((ContextBase) context).remove("blank-page");
             }
+
+            logger.debug("Successfully processed page {}", pageNumber);
+        } catch (PageTimeoutException e) {
+            recordTimedOutPage(context, e);
+        } catch (ConversionCancelledException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new Pdf2ImageException("Failed to process page " + pageNumber, e);
         }
     }
 
+    /**
+     * Hands the memory reserved for the current page back to the budget.
+     */
+    private static void releaseReservation(Context context) {
+        MemoryBudget.Reservation reservation =
+                (MemoryBudget.Reservation) ((ContextBase) context).remove("memory-reservation");
+        if (reservation != null) {
+            reservation.close();
+        }
+    }
+
+    /**
+     * Records a page abandoned after its render deadline so the rest of the document can continue.
+     */
+    @SuppressWarnings("unchecked")
+    static void recordTimedOutPage(Context context, PageTimeoutException e) {
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        logger.warn(e.getMessage());
+        Set<Integer> timedOutPages = (Set<Integer>) ((ContextBase) context).get("timed-out-pages");
+        if (timedOutPages != null) {
+            timedOutPages.add(pageNumber);
+        }
+    }
+
+    /**
+     * Closes the render session and releases the document of a page iterator.
+     */
+    void closePages(ContextBase pagesContext, PDDocument document) {
+        pageRenderer.cleanup(pagesContext);
+        DocumentLoader.release((ConversionConfig) pagesContext.get("config"), document);
+    }
+
+    /**
+     * Leaves the current page under "encoded-page" if the renderer can copy it from the document
+     * already encoded and the storage accepts such pages.
+     *
+     * @return whether the page was extracted
+     */
+    private boolean extractEncodedPage(Context context) {
+        if (!imageStorage.acceptsEncodedPages()) {
+            return false;
+        }
+        Optional<byte[]> encoded = pageRenderer.extractEncodedPage(context);
+        encoded.ifPresent(bytes -> ((ContextBase) context).put("encoded-page", bytes));
+        return encoded.isPresent();
+    }
+
+    /**
+     * Renders the current page and applies the image processor, leaving the result under "image".
+     *
+     * @return the processed image
+     */
+    BufferedImage renderAndProcess(Context context) {
+        // Render the page
+        BufferedImage image = pageRenderer.renderPage(context);
+        ((ContextBase) context).put("image", image);
+
+        // Process the image (rotation, cropping, etc.)
+        BufferedImage processedImage = imageProcessor.process(context);
+        ((ContextBase) context).put("image", processedImage);
+        return processedImage;
+    }
+
     /**
      * Simple record to hold page range.
      */
-    public static record PageRange(int start, int end) { }
+    public static record PageRange(int start, int end) {
+
+        /**
+         * Returns the number of pages covered by this range.
+         */
+        public int pageCount() {
+            return end - start + 1;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.cache.DocumentCache;
+import io.github.dk900912.pdf2image.cache.SharedResourceCache;
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.InputSource;
+import io.github.dk900912.pdf2image.config.LoadingStrategy;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBuffer;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Loads and releases the documents used by a conversion.
+ * Every document obtained from {@link #load} must be handed back through {@link #release},
+ * which returns cached documents to the {@link DocumentCache} and closes the others.
+ *
+ * @author dukui
+ */
+final class DocumentLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentLoader.class);
+
+    private DocumentLoader() {
+    }
+
+    /**
+     * Loads the PDF document from its input source, borrowing file inputs from the document cache if configured.
+     */
+    static PDDocument load(ConversionConfig config) throws IOException {
+        DocumentCache cache = config.getDocumentCache().orElse(null);
+        if (cache != null && config.getInputSource() instanceof InputSource.FileInput file) {
+            // the shared resources of a cached document go when the cache closes it, not when it ages out
+            return cache.acquire(file.path(), LoadSettings.of(config), () -> parse(config),
+                    document -> invalidateResources(config, document));
+        }
+        return parse(config);
+    }
+
+    /**
+     * Releases a document obtained from {@link #load}, logging instead of failing the conversion.
+     */
+    static void release(ConversionConfig config, PDDocument document) {
+        if (document == null) {
+            return;
+        }
+        DocumentCache cache = config.getDocumentCache().orElse(null);
+        if (cache != null && cache.release(document)) {
+            return;
+        }
+        invalidateResources(config, document);
+        try {
+            document.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close PDF document", e);
+        }
+    }
+
+    /**
+     * Drops the entries of a document that is about to be closed from the shared resource cache.
+     */
+    private static void invalidateResources(ConversionConfig config, PDDocument document) {
+        config.getResourceCache().ifPresent(resources -> resources.invalidate(document));
+    }
+
+    /**
+     * Parses the PDF document from its input source according to the configured loading strategy.
+     * In-memory sources are wrapped, not copied; memory mapping only applies to file inputs.
+     */
+    private static PDDocument parse(ConversionConfig config) throws IOException {
+        InputSource input = config.getInputSource();
+        LoadingStrategy strategy = config.getLoadingStrategy();
+        logger.debug("Loading PDF document: {} ({})", input, strategy);
+        RandomAccessRead source = switch (input) {
+            case InputSource.FileInput file when strategy == LoadingStrategy.MEMORY_MAPPED ->
+                    new RandomAccessReadMemoryMappedFile(file.path());
+            case InputSource.FileInput file -> new RandomAccessReadBufferedFile(file.path().toFile());
+            case InputSource.ByteArrayInput array -> new RandomAccessReadBuffer(array.bytes());
+            case InputSource.ByteBufferInput buffer -> new RandomAccessReadBuffer(buffer.buffer().duplicate());
+            case InputSource.StreamInput stream -> new RandomAccessReadBuffer(stream.bytes());
+            case InputSource.RandomAccessInput read -> read.read();
+        };
+        PDDocument document = loadFrom(source, streamCache(config), config.isLazyLoading());
+        SharedResourceCache resources = config.getResourceCache().orElse(null);
+        if (resources != null) {
+            // installed before any page is read, since pages pick up the cache when they are created
+            document.setResourceCache(resources.forDocument(document));
+        }
+        return document;
+    }
+
+    /**
+     * Loads a document from a random access source; the source is released when the document is closed.
+     * In lazy mode the document is first parsed strictly: PDFBox then reads the xref and trailer only,
+     * without checking every object offset or scanning the file, and resolves page objects on demand.
+     * Files that need repairing fall back to the lenient parser.
+     */
+    private static PDDocument loadFrom(RandomAccessRead source, StreamCacheCreateFunction streamCache, boolean lazy)
+            throws IOException {
+        try {
+            if (lazy) {
+                try {
+                    return new PDFParser(source, "", null, null, streamCache).parse(false);
+                } catch (IOException e) {
+                    logger.debug("Strict parsing failed, falling back to lenient parsing", e);
+                    source.seek(0);
+                }
+            }
+            return new PDFParser(source, "", null, null, streamCache).parse(true);
+        } catch (IOException | RuntimeException e) {
+            source.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns where PDFBox keeps its scratch data for the configured loading strategy.
+     */
+    private static StreamCacheCreateFunction streamCache(ConversionConfig config) {
+        return switch (config.getLoadingStrategy()) {
+            case HEAP_ONLY -> IOUtils.createMemoryOnlyStreamCache();
+            case MIXED, MEMORY_MAPPED ->
+                    scratchFile(MemoryUsageSetting.setupMixed(config.getMaxMainMemoryBytes()), config);
+            case TEMP_FILE -> scratchFile(MemoryUsageSetting.setupTempFileOnly(), config);
+        };
+    }
+
+    /**
+     * Creates a scratch file factory honouring the configured scratch directory.
+     */
+    private static StreamCacheCreateFunction scratchFile(MemoryUsageSetting setting, ConversionConfig config) {
+        config.getScratchDirectory().ifPresent(directory -> setting.setTempDir(directory.toFile()));
+        return () -> new ScratchFile(setting);
+    }
+
+    /**
+     * The settings a document is parsed with, besides its file. A cached document is only lent to
+     * conversions with equal settings, so that none reads through another's stream cache or
+     * shares resources through another's resource cache, which is compared by identity.
+     */
+    private record LoadSettings(LoadingStrategy strategy, long maxMainMemoryBytes, Path scratchDirectory,
+                                boolean lazyLoading, SharedResourceCache resourceCache) {
+
+        static LoadSettings of(ConversionConfig config) {
+            return new LoadSettings(config.getLoadingStrategy(), config.getMaxMainMemoryBytes(),
+                    config.getScratchDirectory().orElse(null), config.isLazyLoading(),
+                    config.getResourceCache().orElse(null));
+        }
+    }
+}
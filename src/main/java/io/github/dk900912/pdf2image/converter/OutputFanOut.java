@@ -0,0 +1,142 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.OutputSpec;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.processor.ImageDownscaler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the additional outputs of a conversion from the pages stored for its main output.
+ * Kept in the context under {@code "output-fan-out"}; every output has its own context whose
+ * {@code "config"} describes the output, so its storage sees it like a conversion of its own.
+ *
+ * @author dukui
+ */
+final class OutputFanOut {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutputFanOut.class);
+
+    private final List<Output> outputs;
+
+    private OutputFanOut(List<Output> outputs) {
+        this.outputs = outputs;
+    }
+
+    /**
+     * Prepares the storages of the configured additional outputs, if any.
+     */
+    static void open(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (config.getAdditionalOutputs().isEmpty()) {
+            return;
+        }
+        List<Output> outputs = new ArrayList<>();
+        OutputFanOut fanOut = new OutputFanOut(outputs);
+        ((ContextBase) context).put("output-fan-out", fanOut);
+        for (OutputSpec spec : config.getAdditionalOutputs()) {
+            ContextBase outputContext = new ContextBase();
+            outputContext.put("config", config.forOutput(spec));
+            spec.getStorage().prepare(outputContext);
+            // added once prepared, so that cleanup only visits prepared storages
+            outputs.add(new Output(spec, outputContext));
+        }
+        logger.info("Deriving {} additional outputs from every page", outputs.size());
+    }
+
+    /**
+     * Returns whether every additional output already holds the current page.
+     */
+    static boolean isStored(Context context) {
+        OutputFanOut fanOut = (OutputFanOut) ((ContextBase) context).get("output-fan-out");
+        if (fanOut == null) {
+            return true;
+        }
+        for (Output output : fanOut.outputs) {
+            if (!output.spec.getStorage().isStored(output.pageContext(context, null))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Scales the processed page under {@code "image"} for every additional output and stores it.
+     */
+    static void store(Context context) {
+        OutputFanOut fanOut = (OutputFanOut) ((ContextBase) context).get("output-fan-out");
+        if (fanOut == null) {
+            return;
+        }
+        BufferedImage image = (BufferedImage) ((ContextBase) context).get("image");
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        for (Output output : fanOut.outputs) {
+            output.spec.getStorage().store(output.pageContext(context, derive(image, config, output.spec)));
+        }
+    }
+
+    /**
+     * Stores the current page in every additional output as a copy of an earlier page.
+     *
+     * @return whether every output stored the copy
+     */
+    static boolean storeDuplicate(Context context, int originalPageNumber) {
+        OutputFanOut fanOut = (OutputFanOut) ((ContextBase) context).get("output-fan-out");
+        if (fanOut == null) {
+            return true;
+        }
+        for (Output output : fanOut.outputs) {
+            if (!output.spec.getStorage().storeDuplicate(output.pageContext(context, null), originalPageNumber)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Cleans up the storages of the additional outputs.
+     */
+    static void cleanup(Context context) {
+        OutputFanOut fanOut = (OutputFanOut) ((ContextBase) context).remove("output-fan-out");
+        if (fanOut == null) {
+            return;
+        }
+        for (Output output : fanOut.outputs) {
+            output.spec.getStorage().cleanup(output.context);
+        }
+    }
+
+    /**
+     * Scales a page of the main output to an additional output. A DPI is relative to the
+     * main output's DPI, a target size is fitted to the page as it was stored.
+     */
+    private static BufferedImage derive(BufferedImage image, ConversionConfig config, OutputSpec spec) {
+        float ratio = spec.getTargetSize()
+                .map(size -> size.scale(image.getWidth(), image.getHeight()))
+                .orElseGet(() -> spec.getDpi().orElseThrow() / (float) config.getDpi());
+        int width = (int) Math.max(Math.floor(image.getWidth() * ratio), 1);
+        int height = (int) Math.max(Math.floor(image.getHeight() * ratio), 1);
+        return ImageDownscaler.scale(image, width, height, spec.getImageMode().getBufferedImageType());
+    }
+
+    private record Output(OutputSpec spec, ContextBase context) {
+
+        /**
+         * Creates the page context seen by the output's storage.
+         */
+        ContextBase pageContext(Context context, BufferedImage image) {
+            ContextBase pageContext = new ContextBase(this.context);
+            pageContext.put("page-index", ((ContextBase) context).get("page-index"));
+            if (image != null) {
+                pageContext.put("image", image);
+            }
+            return pageContext;
+        }
+    }
+}
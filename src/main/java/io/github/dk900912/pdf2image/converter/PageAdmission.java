@@ -0,0 +1,134 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.config.BlankPagePolicy;
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.ImageMode;
+import io.github.dk900912.pdf2image.config.MemoryBudget;
+import io.github.dk900912.pdf2image.config.OutputSpec;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.renderer.PdfBoxPageRenderer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admits pages against the configured {@link MemoryBudget} before they are rendered.
+ *
+ * @author dukui
+ */
+final class PageAdmission {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageAdmission.class);
+
+    private PageAdmission() {
+    }
+
+    /**
+     * Reserves the estimated bitmap size of the current page, blocking while the budget is exhausted.
+     *
+     * @param context the page context holding the document and page index
+     * @return the reservation, or {@code null} if no memory budget is configured
+     * @exception Pdf2ImageException if interrupted while waiting for admission
+     */
+    static MemoryBudget.Reservation admit(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        MemoryBudget budget = config.getMemoryBudget().orElse(null);
+        if (budget == null) {
+            return null;
+        }
+
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        int pageIndex = (int) ((ContextBase) context).get("page-index");
+        long bytes = estimatePageBytes(document.getPage(pageIndex), config);
+        if (bytes > budget.getCapacityBytes()) {
+            logger.warn("Page {} needs about {} bytes, more than the whole memory budget of {} bytes; "
+                    + "it will be rendered alone", pageIndex + 1, bytes, budget.getCapacityBytes());
+        }
+        try {
+            return budget.reserve(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Pdf2ImageException("Interrupted while waiting for memory to render page " + (pageIndex + 1), e);
+        }
+    }
+
+    /**
+     * Estimates the bytes held at once for a page, from the bitmaps its conversion allocates:
+     * <ul>
+     *     <li>the page bitmap, sized the way PDFBox sizes it from the crop box scaled to the target
+     *     DPI or size, or a single band of it when rendering in bands;</li>
+     *     <li>under rotation, one bitmap of the rotated size when the renderer rotates while drawing,
+     *     or the page bitmap and its rotated copy when the page has blend modes and the image
+     *     processor rotates it;</li>
+     *     <li>the largest image derived for an additional output, since they are derived one at a time;</li>
+     *     <li>the reduced copy of a page stored under {@link BlankPagePolicy#DOWNSCALE}.</li>
+     * </ul>
+     */
+    static long estimatePageBytes(PDPage page, ConversionConfig config) {
+        PDRectangle cropBox = page.getCropBox();
+        boolean turned = page.getRotation() == 90 || page.getRotation() == 270;
+        float scale = turned
+                ? config.getScale(cropBox.getHeight(), cropBox.getWidth())
+                : config.getScale(cropBox.getWidth(), cropBox.getHeight());
+        long width = (long) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+        long height = (long) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+        if (turned) {
+            long displayedWidth = height;
+            height = width;
+            width = displayedWidth;
+        }
+        ImageMode mode = config.getImageMode();
+
+        if (config.getBandHeight() > 0) {
+            // only one band of the page is held at a time, bands are neither rotated nor derived
+            return rasterBytes(width, Math.min(height, config.getBandHeight()), mode);
+        }
+
+        long bytes = rasterBytes(width, height, mode);
+        if (config.getRotationDegrees() != 0) {
+            double radians = Math.toRadians(config.getRotationDegrees());
+            double sin = Math.abs(Math.sin(radians));
+            double cos = Math.abs(Math.cos(radians));
+            long rotatedWidth = (long) Math.floor(width * cos + height * sin);
+            long rotatedHeight = (long) Math.floor(height * cos + width * sin);
+            long rotated = rasterBytes(rotatedWidth, rotatedHeight, mode);
+            bytes = PdfBoxPageRenderer.hasBlendMode(page) ? bytes + rotated : rotated;
+            width = rotatedWidth;
+            height = rotatedHeight;
+        }
+
+        long derived = 0;
+        long storedWidth = width;
+        long storedHeight = height;
+        for (OutputSpec output : config.getAdditionalOutputs()) {
+            float ratio = output.getTargetSize()
+                    .map(size -> size.scale(storedWidth, storedHeight))
+                    .orElseGet(() -> output.getDpi().orElseThrow() / (float) config.getDpi());
+            derived = Math.max(derived, rasterBytes((long) Math.max(Math.floor(storedWidth * ratio), 1),
+                    (long) Math.max(Math.floor(storedHeight * ratio), 1), output.getImageMode()));
+        }
+        bytes += derived;
+
+        if (config.getBlankPagePolicy() == BlankPagePolicy.DOWNSCALE) {
+            bytes += rasterBytes(Math.max(width / BlankPages.DOWNSCALE_FACTOR, 1),
+                    Math.max(height / BlankPages.DOWNSCALE_FACTOR, 1), mode);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the size of a raster of the given mode: packed ints for colour,
+     * one byte per pixel for grayscale and one bit per pixel for black and white.
+     */
+    private static long rasterBytes(long width, long height, ImageMode mode) {
+        return switch (mode) {
+            case COLOR -> width * height * Integer.BYTES;
+            case GRAYSCALE -> width * height;
+            case BLACK_AND_WHITE -> (width + 7) / 8 * height;
+        };
+    }
+}
@@ -0,0 +1,209 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.storage.ImageStorage;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Detects pages that repeat an earlier page of the same conversion and stores them as copies
+ * of that page's output instead of rendering them again. Kept in the context under
+ * {@code "page-deduplication"}.
+ *
+ * <p>A page is fingerprinted before rendering from its crop box, rotation, content streams and
+ * resources. Resources are identified by their object numbers, so two pages match when they draw
+ * the same bytes with the very same fonts, images and other resources. The first page of every
+ * fingerprint is rendered; later pages wait until it is stored and then ask the storage to copy it.</p>
+ *
+ * @author dukui
+ */
+final class PageDeduplication {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageDeduplication.class);
+
+    /**
+     * Depth below which indirect objects are identified by their object number instead of
+     * their content: the resource dictionary and its categories are compared by content,
+     * the resources themselves by identity.
+     */
+    private static final int RESOURCE_DEPTH = 2;
+
+    private final Map<String, Original> originals = new ConcurrentHashMap<>();
+    private final Map<Integer, Original> claimedPages = new ConcurrentHashMap<>();
+
+    private PageDeduplication() {
+    }
+
+    /**
+     * Starts tracking page fingerprints if deduplication is enabled.
+     */
+    static void open(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (config.isDeduplicatePages()) {
+            ((ContextBase) context).put("page-deduplication", new PageDeduplication());
+        }
+    }
+
+    /**
+     * Stores the current page as a copy of an earlier page with the same fingerprint, if there is one.
+     * Otherwise the current page becomes the original of its fingerprint and must be reported to
+     * {@link #complete(Context, boolean)} once it is stored or has failed.
+     *
+     * @return {@code true} if the page was stored as a copy, {@code false} if it must be rendered
+     */
+    static boolean storeDuplicate(Context context, ImageStorage storage) {
+        PageDeduplication deduplication = (PageDeduplication) ((ContextBase) context).get("page-deduplication");
+        if (deduplication == null) {
+            return false;
+        }
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        int pageIndex = (int) ((ContextBase) context).get("page-index");
+        String fingerprint;
+        try {
+            fingerprint = fingerprint(document.getPage(pageIndex));
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to fingerprint page " + (pageIndex + 1), e);
+        }
+
+        Original claim = new Original(pageIndex + 1, new CompletableFuture<>());
+        Original original = deduplication.originals.putIfAbsent(fingerprint, claim);
+        if (original == null) {
+            deduplication.claimedPages.put(pageIndex, claim);
+            return false;
+        }
+        // the original may still be rendering on another worker
+        if (!original.stored().join()) {
+            return false;
+        }
+        if (storage.storeDuplicate(context, original.pageNumber())
+                && OutputFanOut.storeDuplicate(context, original.pageNumber())) {
+            logger.debug("Page {} repeats page {}, stored as a copy", pageIndex + 1, original.pageNumber());
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reports whether the current page was stored, releasing the pages waiting to copy it.
+     */
+    static void complete(Context context, boolean stored) {
+        PageDeduplication deduplication = (PageDeduplication) ((ContextBase) context).get("page-deduplication");
+        if (deduplication == null) {
+            return;
+        }
+        Original claim = deduplication.claimedPages.remove((int) ((ContextBase) context).get("page-index"));
+        if (claim != null) {
+            claim.stored().complete(stored);
+        }
+    }
+
+    /**
+     * Fingerprints what a page looks like when rendered.
+     */
+    static String fingerprint(PDPage page) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        update(digest, "box=" + page.getCropBox() + ";rotation=" + page.getRotation() + ";contents=");
+        try (InputStream contents = page.getContents()) {
+            contents.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+        }
+        Set<COSBase> visiting = Collections.newSetFromMap(new IdentityHashMap<>());
+        PDResources resources = page.getResources();
+        update(digest, ";resources=");
+        if (resources != null) {
+            hash(digest, resources.getCOSObject(), 0, visiting);
+        }
+        update(digest, ";annotations=");
+        hash(digest, page.getCOSObject().getItem(COSName.ANNOTS), RESOURCE_DEPTH, visiting);
+        update(digest, ";group=");
+        hash(digest, page.getCOSObject().getItem(COSName.GROUP), RESOURCE_DEPTH, visiting);
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void hash(MessageDigest digest, COSBase base, int depth, Set<COSBase> visiting)
+            throws IOException {
+        if (base instanceof COSObject indirect) {
+            COSObjectKey key = indirect.getKey();
+            if (depth >= RESOURCE_DEPTH && key != null) {
+                update(digest, "R" + key.getNumber() + "." + key.getGeneration());
+                return;
+            }
+            base = indirect.getObject();
+        }
+        if (base == null) {
+            update(digest, "null");
+            return;
+        }
+        if (!visiting.add(base)) {
+            // a cycle through direct objects, only possible in documents built in memory
+            update(digest, "cycle");
+            return;
+        }
+        try {
+            if (base instanceof COSDictionary dictionary) {
+                update(digest, "<<");
+                for (COSName name : dictionary.keySet().stream().sorted().toList()) {
+                    update(digest, "/" + name.getName());
+                    hash(digest, dictionary.getItem(name), depth + 1, visiting);
+                }
+                update(digest, ">>");
+                if (dictionary instanceof COSStream stream) {
+                    try (InputStream raw = stream.createRawInputStream()) {
+                        raw.transferTo(new DigestOutputStream(OutputStream.nullOutputStream(), digest));
+                    }
+                }
+            } else if (base instanceof COSArray array) {
+                update(digest, "[");
+                for (int i = 0; i < array.size(); i++) {
+                    hash(digest, array.get(i), depth + 1, visiting);
+                }
+                update(digest, "]");
+            } else {
+                update(digest, base.toString());
+            }
+        } finally {
+            visiting.remove(base);
+        }
+    }
+
+    private static void update(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The first page of a fingerprint, completed with whether it was stored.
+     */
+    private record Original(int pageNumber, CompletableFuture<Boolean> stored) { }
+}
@@ -0,0 +1,76 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.converter.DefaultPdf2ImageConverter.PageRange;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based iterator over the pages of an opened document.
+ * A page is rendered and processed only when {@link #next()} is called, and the
+ * document is closed once the last page has been returned or {@link #close()} is called.
+ *
+ * @author dukui
+ */
+public final class PageIterator implements Iterator<PageResult>, AutoCloseable {
+
+    private final DefaultPdf2ImageConverter converter;
+    private final ContextBase context;
+    private final PageRange pageRange;
+    private final PDDocument document;
+
+    private int nextPageIndex;
+    private boolean closed;
+
+    PageIterator(DefaultPdf2ImageConverter converter, ContextBase context, PageRange pageRange, PDDocument document) {
+        this.converter = converter;
+        this.context = context;
+        this.pageRange = pageRange;
+        this.document = document;
+        this.nextPageIndex = pageRange.start();
+    }
+
+    /**
+     * Returns the number of pages this iterator yields in total.
+     */
+    public int pageCount() {
+        return pageRange.pageCount();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && nextPageIndex <= pageRange.end();
+    }
+
+    @Override
+    public PageResult next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int pageIndex = nextPageIndex++;
+        int pageNumber = pageIndex + 1;
+        context.put("page-index", pageIndex);
+        try {
+            PageResult result = new PageResult(pageNumber, converter.renderAndProcess(context));
+            if (nextPageIndex > pageRange.end()) {
+                close();
+            }
+            return result;
+        } catch (Exception e) {
+            close();
+            throw new Pdf2ImageException("Failed to process page " + pageNumber, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        converter.closePages(context, document);
+    }
+}
@@ -0,0 +1,295 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.MemoryBudget;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.converter.DefaultPdf2ImageConverter.PageRange;
+import io.github.dk900912.pdf2image.exception.ConversionCancelledException;
+import io.github.dk900912.pdf2image.exception.PageTimeoutException;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.processor.ImageProcessor;
+import io.github.dk900912.pdf2image.renderer.PageRenderer;
+import io.github.dk900912.pdf2image.renderer.RenderGuard;
+import io.github.dk900912.pdf2image.storage.ImageStorage;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Staged render → process → store pipeline.
+ * Each stage runs on its own worker pool and hands pages to the next stage through a
+ * bounded queue, so a full queue blocks the upstream stage instead of piling up images.
+ * At most {@code 3 * workers + 2 * queueCapacity} page images are alive at any time;
+ * with a memory budget, a page's reservation is held from rendering until it is stored.
+ *
+ * @author dukui
+ */
+final class PagePipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagePipeline.class);
+
+    /**
+     * Marker telling a downstream worker that its upstream stage has finished.
+     */
+    private static final ContextBase END_OF_STAGE = new ContextBase();
+
+    private final PageRenderer pageRenderer;
+    private final ImageProcessor imageProcessor;
+    private final ImageStorage imageStorage;
+    private final int workers;
+    private final int queueCapacity;
+
+    private final AtomicReference<Pdf2ImageException> failure = new AtomicReference<>();
+    private final Queue<MemoryBudget.Reservation> reservations = new ConcurrentLinkedQueue<>();
+    private List<ExecutorService> pools = List.of();
+
+    PagePipeline(PageRenderer pageRenderer,
+                 ImageProcessor imageProcessor,
+                 ImageStorage imageStorage,
+                 int workers,
+                 int queueCapacity) {
+        this.pageRenderer = pageRenderer;
+        this.imageProcessor = imageProcessor;
+        this.imageStorage = imageStorage;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Runs the pipeline over the page range and blocks until every page is stored.
+     *
+     * @param context the conversion context holding the already loaded document
+     * @param pageRange the pages to convert
+     * @param documentSource opens additional document instances for render workers
+     * @exception Pdf2ImageException if any page fails in any stage
+     */
+    void run(Context context, PageRange pageRange, DocumentSource documentSource) {
+        logger.info("Processing pages in pipeline with {} workers per stage and queue capacity {}",
+                workers, queueCapacity);
+
+        BlockingQueue<ContextBase> rendered = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<ContextBase> processed = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger nextPageIndex = new AtomicInteger(pageRange.start());
+        AtomicInteger activeRenderers = new AtomicInteger(workers);
+        AtomicInteger activeProcessors = new AtomicInteger(workers);
+
+        ExecutorService renderPool = Executors.newFixedThreadPool(workers);
+        ExecutorService processPool = Executors.newFixedThreadPool(workers);
+        ExecutorService storePool = Executors.newFixedThreadPool(workers);
+        pools = List.of(renderPool, processPool, storePool);
+
+        for (int worker = 0; worker < workers; worker++) {
+            // the caller thread only waits, so the first render worker may reuse the loaded document
+            boolean reuseDocument = worker == 0;
+            renderPool.execute(() -> runStage(
+                    () -> render(context, pageRange, nextPageIndex, rendered, documentSource, reuseDocument),
+                    activeRenderers, rendered));
+            processPool.execute(() -> runStage(() -> process(rendered, processed), activeProcessors, processed));
+            storePool.execute(() -> runStage(() -> store(processed), null, null));
+        }
+
+        try {
+            for (ExecutorService pool : pools) {
+                pool.shutdown();
+            }
+            for (ExecutorService pool : pools) {
+                while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                    logger.trace("Waiting for pipeline stage to drain");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(new Pdf2ImageException("Interrupted while waiting for pipeline stages", e));
+        } finally {
+            // pages dropped by an abort never reach the store stage, so release what they still hold
+            reservations.forEach(MemoryBudget.Reservation::close);
+        }
+
+        Pdf2ImageException error = failure.get();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Render stage: renders pages handed out by the shared counter.
+     */
+    private void render(Context context,
+                        PageRange pageRange,
+                        AtomicInteger nextPageIndex,
+                        BlockingQueue<ContextBase> rendered,
+                        DocumentSource documentSource,
+                        boolean reuseDocument) throws InterruptedException {
+        ContextBase workerContext = new ContextBase((ContextBase) context);
+        PDDocument document = null;
+        try {
+            if (!reuseDocument) {
+                document = documentSource.open();
+                workerContext.put("document", document);
+                pageRenderer.prepare(workerContext);
+            }
+            int pageIndex;
+            while (failure.get() == null && (pageIndex = nextPageIndex.getAndIncrement()) <= pageRange.end()) {
+                ContextBase pageContext = new ContextBase(workerContext);
+                pageContext.put("page-index", pageIndex);
+                RenderGuard.checkDocument(pageContext);
+                try {
+                    if (imageStorage.isStored(pageContext) && OutputFanOut.isStored(pageContext)) {
+                        logger.debug("Page {} was already converted, skipping", pageIndex + 1);
+                        continue;
+                    }
+                    if (BlankPages.skipBeforeRendering(pageContext)) {
+                        continue;
+                    }
+                    MemoryBudget.Reservation reservation = PageAdmission.admit(pageContext);
+                    if (reservation != null) {
+                        reservations.add(reservation);
+                        pageContext.put("memory-reservation", reservation);
+                    }
+                    Optional<byte[]> encoded = imageStorage.acceptsEncodedPages()
+                            ? pageRenderer.extractEncodedPage(pageContext)
+                            : Optional.empty();
+                    if (encoded.isPresent()) {
+                        pageContext.put("encoded-page", encoded.get());
+                    } else {
+                        pageContext.put("image", pageRenderer.renderPage(pageContext));
+                    }
+                } catch (PageTimeoutException e) {
+                    DefaultPdf2ImageConverter.recordTimedOutPage(pageContext, e);
+                    releaseReservation(pageContext);
+                    continue;
+                } catch (ConversionCancelledException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new Pdf2ImageException("Failed to process page " + (pageIndex + 1), e);
+                }
+                rendered.put(pageContext);
+            }
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to load PDF for render worker", e);
+        } finally {
+            if (document != null) {
+                pageRenderer.cleanup(workerContext);
+                DocumentLoader.release((ConversionConfig) workerContext.get("config"), document);
+            }
+        }
+    }
+
+    /**
+     * Process stage: applies the image processor to rendered pages.
+     * Encoded pages are passed on untouched, blank pages dropped by the blank page policy are not passed on.
+     */
+    private void process(BlockingQueue<ContextBase> rendered,
+                         BlockingQueue<ContextBase> processed) throws InterruptedException {
+        ContextBase pageContext;
+        while ((pageContext = rendered.take()) != END_OF_STAGE) {
+            try {
+                if (pageContext.get("encoded-page") == null) {
+                    BufferedImage processedImage = imageProcessor.process(pageContext);
+                    pageContext.put("image", processedImage);
+                }
+                if (!BlankPages.applyAfterProcessing(pageContext)) {
+                    releaseReservation(pageContext);
+                    continue;
+                }
+            } catch (Exception e) {
+                throw new Pdf2ImageException("Failed to process page " + pageNumber(pageContext), e);
+            }
+            processed.put(pageContext);
+        }
+    }
+
+    /**
+     * Store stage: hands processed pages to the image storage.
+     */
+    private void store(BlockingQueue<ContextBase> processed) throws InterruptedException {
+        ContextBase pageContext;
+        while ((pageContext = processed.take()) != END_OF_STAGE) {
+            try {
+                imageStorage.store(pageContext);
+                OutputFanOut.store(pageContext);
+                logger.debug("Successfully processed page {}", pageNumber(pageContext));
+            } catch (Exception e) {
+                throw new Pdf2ImageException("Failed to process page " + pageNumber(pageContext), e);
+            } finally {
+                releaseReservation(pageContext);
+            }
+        }
+    }
+
+    /**
+     * Hands the memory reserved for a page back to the budget.
+     */
+    private void releaseReservation(ContextBase pageContext) {
+        MemoryBudget.Reservation reservation = (MemoryBudget.Reservation) pageContext.remove("memory-reservation");
+        if (reservation != null) {
+            reservation.close();
+            reservations.remove(reservation);
+        }
+    }
+
+    /**
+     * Runs a stage body, turning the first failure into an abort of the whole pipeline.
+     * Once the last worker of a stage completes normally, downstream workers are signalled
+     * with one end marker each; failed or interrupted workers never signal, since abort
+     * already interrupts everything downstream.
+     */
+    private void runStage(StageBody body, AtomicInteger activeWorkers, BlockingQueue<ContextBase> downstream) {
+        try {
+            body.run();
+            if (downstream != null && activeWorkers.decrementAndGet() == 0) {
+                for (int i = 0; i < workers; i++) {
+                    downstream.put(END_OF_STAGE);
+                }
+            }
+        } catch (InterruptedException e) {
+            // interrupted by abort(), the original failure is already recorded
+            Thread.currentThread().interrupt();
+        } catch (Pdf2ImageException e) {
+            abort(e);
+        } catch (RuntimeException e) {
+            abort(new Pdf2ImageException("Pipeline stage failed", e));
+        }
+    }
+
+    /**
+     * Records the failure and interrupts every stage so that no worker stays blocked on a queue.
+     */
+    private void abort(Pdf2ImageException e) {
+        if (failure.compareAndSet(null, e)) {
+            pools.forEach(ExecutorService::shutdownNow);
+        }
+    }
+
+    private static int pageNumber(ContextBase pageContext) {
+        return (int) pageContext.get("page-index") + 1;
+    }
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws InterruptedException;
+    }
+
+    /**
+     * Opens a new, independent instance of the document being converted.
+     */
+    @FunctionalInterface
+    interface DocumentSource {
+        PDDocument open() throws IOException;
+    }
+}
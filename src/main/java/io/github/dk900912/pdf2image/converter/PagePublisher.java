@@ -0,0 +1,154 @@
+package io.github.dk900912.pdf2image.converter;
+
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Demand-driven publisher of converted pages.
+ * The document is opened on the first request and a page is rendered only when the
+ * subscriber has outstanding demand for it, so cancelled or unrequested pages cost nothing.
+ * Signals are delivered on the given executor, one at a time. Only a single subscriber is supported.
+ *
+ * @author dukui
+ */
+final class PagePublisher implements Flow.Publisher<PageResult> {
+
+    private final Supplier<PageIterator> pagesSupplier;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+    PagePublisher(Supplier<PageIterator> pagesSupplier, Executor executor) {
+        this.pagesSupplier = pagesSupplier;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PageResult> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber cannot be null");
+        }
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Page publisher supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new PageSubscription(subscriber));
+    }
+
+    private final class PageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super PageResult> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+
+        private volatile boolean cancelled;
+        private volatile IllegalArgumentException invalidRequest;
+        private boolean done;
+        private PageIterator pages;
+
+        PageSubscription(Flow.Subscriber<? super PageResult> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                // rule 3.9 of the reactive streams specification
+                invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+                executor.execute(this::drain);
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> {
+                long sum = current + added;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            executor.execute(this::drain);
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            executor.execute(this::drain);
+        }
+
+        /**
+         * Emits pages while there is demand. Concurrent calls are serialized: whoever
+         * enters first keeps looping until no other drain was requested meanwhile.
+         */
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!done) {
+                    emit();
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            try {
+                if (invalidRequest != null) {
+                    terminate(invalidRequest);
+                    return;
+                }
+                if (cancelled) {
+                    done = true;
+                    closePages();
+                    return;
+                }
+                if (pages == null) {
+                    pages = pagesSupplier.get();
+                }
+                while (!cancelled && demand.get() > 0 && pages.hasNext()) {
+                    PageResult result = pages.next();
+                    demand.decrementAndGet();
+                    subscriber.onNext(result);
+                }
+                if (cancelled) {
+                    done = true;
+                    closePages();
+                } else if (!pages.hasNext()) {
+                    done = true;
+                    closePages();
+                    subscriber.onComplete();
+                }
+            } catch (Pdf2ImageException e) {
+                terminate(e);
+            } catch (RuntimeException e) {
+                terminate(new Pdf2ImageException("Failed to publish pages", e));
+            }
+        }
+
+        private void terminate(Throwable error) {
+            if (done) {
+                return;
+            }
+            done = true;
+            closePages();
+            subscriber.onError(error);
+        }
+
+        private void closePages() {
+            if (pages != null) {
+                pages.close();
+            }
+        }
+    }
+}
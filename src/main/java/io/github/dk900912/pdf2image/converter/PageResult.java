@@ -0,0 +1,12 @@
+package io.github.dk900912.pdf2image.converter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A rendered and processed page handed out by the streaming API.
+ *
+ * @param pageNumber the page number (1-based)
+ * @param image the processed image
+ * @author dukui
+ */
+public record PageResult(int pageNumber, BufferedImage image) { }
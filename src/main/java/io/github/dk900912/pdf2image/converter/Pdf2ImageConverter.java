@@ -3,9 +3,18 @@ package io.github.dk900912.pdf2image.converter;
 import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
 import io.github.dk900912.pdf2image.processor.DefaultImageProcessor;
+import io.github.dk900912.pdf2image.renderer.ConcurrencyLimitedPageRenderer;
+import io.github.dk900912.pdf2image.renderer.FontWarmup;
 import io.github.dk900912.pdf2image.renderer.PdfBoxPageRenderer;
 import io.github.dk900912.pdf2image.storage.LocalFileSystemStorage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * Interface for PDF to image conversion operations.
  *
@@ -21,6 +30,46 @@ public interface Pdf2ImageConverter {
      */
     void convert(Context context);
 
+    /**
+     * Converts many PDF files, each on its own virtual thread.
+     * A failing document does not abort the batch; its failure is reported in its result instead.
+     * To keep CPU-bound rendering from oversubscribing the cores, use a converter whose
+     * renderer is limited, such as the one returned by {@link #createBatchConverter()}.
+     *
+     * @param contexts the conversion contexts, one per document
+     * @return the results, in the same order as the contexts
+     */
+    default List<ConversionResult> convertAll(List<? extends Context> contexts) {
+        List<Future<ConversionResult>> futures = new ArrayList<>(contexts.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Context context : contexts) {
+                futures.add(executor.submit(() -> {
+                    try {
+                        convert(context);
+                        return ConversionResult.success(context);
+                    } catch (Pdf2ImageException e) {
+                        return ConversionResult.failure(context, e);
+                    } catch (RuntimeException e) {
+                        return ConversionResult.failure(context, new Pdf2ImageException("Conversion failed", e));
+                    }
+                }));
+            }
+        }
+
+        List<ConversionResult> results = new ArrayList<>(futures.size());
+        for (Future<ConversionResult> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new Pdf2ImageException("Interrupted while waiting for batch conversion", e);
+            } catch (ExecutionException e) {
+                throw new Pdf2ImageException("Batch conversion failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
 
     static DefaultPdf2ImageConverter createDefaultConverter() {
         return new DefaultPdf2ImageConverter(
@@ -30,4 +79,36 @@ public interface Pdf2ImageConverter {
         );
     }
 
+    /**
+     * Creates the default converter, optionally warming up fonts in the background so that
+     * the first page rendered does not pay for building the font index.
+     *
+     * @param warmUpFonts whether to start the {@link FontWarmup}
+     */
+    static DefaultPdf2ImageConverter createDefaultConverter(boolean warmUpFonts) {
+        if (warmUpFonts) {
+            FontWarmup.start();
+        }
+        return createDefaultConverter();
+    }
+
+    /**
+     * Creates a converter for {@link #convertAll(List)} whose rendering is capped at one page per core.
+     */
+    static DefaultPdf2ImageConverter createBatchConverter() {
+        return createBatchConverter(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a converter for {@link #convertAll(List)} that renders at most
+     * {@code maxConcurrentRenders} pages at the same time across all documents.
+     */
+    static DefaultPdf2ImageConverter createBatchConverter(int maxConcurrentRenders) {
+        return new DefaultPdf2ImageConverter(
+                new ConcurrencyLimitedPageRenderer(new PdfBoxPageRenderer(), maxConcurrentRenders),
+                new DefaultImageProcessor(),
+                new LocalFileSystemStorage()
+        );
+    }
+
 }
\ No newline at end of file
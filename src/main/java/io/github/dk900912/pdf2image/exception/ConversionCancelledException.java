@@ -0,0 +1,14 @@
+package io.github.dk900912.pdf2image.exception;
+
+/**
+ * Thrown when a conversion is stopped because it was cancelled, interrupted or
+ * ran past its document deadline.
+ *
+ * @author dukui
+ */
+public class ConversionCancelledException extends Pdf2ImageException {
+
+    public ConversionCancelledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.dk900912.pdf2image.exception;
+
+/**
+ * Thrown when rendering a single page runs past its page deadline.
+ * The page is abandoned while the remaining pages are still converted.
+ *
+ * @author dukui
+ */
+public class PageTimeoutException extends Pdf2ImageException {
+
+    public PageTimeoutException(String message) {
+        super(message);
+    }
+}
@@ -34,17 +34,19 @@ public class DefaultImageProcessor implements ImageProcessor {
 
         BufferedImage processed = image;
 
-        // Apply rotation if needed
-        if (config.getRotationDegrees() != 0) {
+        // Apply rotation if needed and the renderer did not already rotate while drawing
+        if (config.getRotationDegrees() != 0
+                && !Boolean.TRUE.equals(((ContextBase) context).get("rotation-applied"))) {
             processed = rotate(processed, config.getRotationDegrees());
             logger.debug("Applied rotation: {} degrees", config.getRotationDegrees());
         }
 
-        // Apply cropping if enabled
+        // Trim white margins if cropping is enabled
         if (config.isEnableCropping()) {
-            // Cropping logic can be extended based on specific requirements
-            // For now, we'll keep the full image
-            logger.debug("Cropping is enabled but not yet implemented");
+            int width = processed.getWidth();
+            int height = processed.getHeight();
+            processed = WhitespaceTrim.trim(processed, config.getCroppingTolerance());
+            logger.debug("Cropped {}x{} to {}x{}", width, height, processed.getWidth(), processed.getHeight());
         }
 
         // Convert to target image mode if needed
@@ -55,12 +57,18 @@ public class DefaultImageProcessor implements ImageProcessor {
 
     /**
      * Rotates an image by the specified degrees.
+     * Quarter turns move pixels losslessly, other angles are drawn with bilinear interpolation.
      *
      * @param image the source image
      * @param degrees the rotation angle in degrees
      * @return the rotated image
      */
     private BufferedImage rotate(BufferedImage image, int degrees) {
+        int normalized = Math.floorMod(degrees, 360);
+        if (normalized % 90 == 0) {
+            return QuarterTurn.rotate(image, normalized / 90);
+        }
+
         double radians = Math.toRadians(degrees);
         double sin = Math.abs(Math.sin(radians));
         double cos = Math.abs(Math.cos(radians));
@@ -0,0 +1,219 @@
+package io.github.dk900912.pdf2image.processor;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.IndexColorModel;
+import java.awt.image.MultiPixelPackedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.stream.IntStream;
+
+/**
+ * Lossless rotation by quarter turns. Pixels are moved, never interpolated, so the result is
+ * bit-exact and only the destination raster is allocated. The raster types of the image modes
+ * (packed RGB ints, gray bytes and packed 1-bit pixels) are remapped directly on their data
+ * arrays, other images sample by sample; large pages are remapped on several threads, one
+ * destination row per task.
+ *
+ * @author dukui
+ */
+final class QuarterTurn {
+
+    /**
+     * Pixel count from which destination rows are remapped in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 4L * 1024 * 1024;
+
+    private QuarterTurn() {
+    }
+
+    /**
+     * Rotates an image clockwise.
+     *
+     * @param image the source image
+     * @param quarterTurns the number of clockwise quarter turns, from 0 to 3
+     * @return the rotated image, or the source itself for no turn
+     */
+    static BufferedImage rotate(BufferedImage image, int quarterTurns) {
+        if (quarterTurns == 0) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean sideways = quarterTurns % 2 == 1;
+        int newWidth = sideways ? height : width;
+        int newHeight = sideways ? width : height;
+
+        WritableRaster source = image.getRaster();
+        boolean direct = source.getSampleModelTranslateX() == 0 && source.getSampleModelTranslateY() == 0
+                && source.getDataBuffer().getNumBanks() == 1;
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB -> {
+                if (direct) {
+                    BufferedImage rotated = new BufferedImage(newWidth, newHeight, image.getType());
+                    rotateInts(source, rotated.getRaster(), quarterTurns);
+                    return rotated;
+                }
+            }
+            case BufferedImage.TYPE_BYTE_GRAY -> {
+                if (direct) {
+                    BufferedImage rotated = new BufferedImage(newWidth, newHeight, image.getType());
+                    rotateBytes(source, rotated.getRaster(), quarterTurns);
+                    return rotated;
+                }
+            }
+            case BufferedImage.TYPE_BYTE_BINARY -> {
+                MultiPixelPackedSampleModel model = (MultiPixelPackedSampleModel) source.getSampleModel();
+                if (direct && model.getPixelBitStride() == 1 && model.getDataBitOffset() == 0) {
+                    BufferedImage rotated = new BufferedImage(newWidth, newHeight, image.getType(),
+                            (IndexColorModel) image.getColorModel());
+                    rotateBits(source, rotated.getRaster(), quarterTurns);
+                    return rotated;
+                }
+            }
+            default -> {
+                // remapped sample by sample below
+            }
+        }
+        ColorModel colorModel = image.getColorModel();
+        WritableRaster target = colorModel.createCompatibleWritableRaster(newWidth, newHeight);
+        rotateSamples(source, target, quarterTurns);
+        return new BufferedImage(colorModel, target, colorModel.isAlphaPremultiplied(), null);
+    }
+
+    private static void rotateInts(WritableRaster source, WritableRaster target, int quarterTurns) {
+        int[] src = ((DataBufferInt) source.getDataBuffer()).getData();
+        int[] dst = ((DataBufferInt) target.getDataBuffer()).getData();
+        int srcBase = source.getDataBuffer().getOffset();
+        int srcStride = ((SinglePixelPackedSampleModel) source.getSampleModel()).getScanlineStride();
+        int dstBase = target.getDataBuffer().getOffset();
+        int dstStride = ((SinglePixelPackedSampleModel) target.getSampleModel()).getScanlineStride();
+        Mapping mapping = new Mapping(source.getWidth(), source.getHeight(), srcStride, quarterTurns);
+        rows(target, dy -> {
+            int row = dstBase + dy * dstStride;
+            for (int dx = 0; dx < target.getWidth(); dx++) {
+                dst[row + dx] = src[srcBase + mapping.index(dx, dy)];
+            }
+        });
+    }
+
+    private static void rotateBytes(WritableRaster source, WritableRaster target, int quarterTurns) {
+        byte[] src = ((DataBufferByte) source.getDataBuffer()).getData();
+        byte[] dst = ((DataBufferByte) target.getDataBuffer()).getData();
+        ComponentSampleModel sourceModel = (ComponentSampleModel) source.getSampleModel();
+        ComponentSampleModel targetModel = (ComponentSampleModel) target.getSampleModel();
+        int srcBase = source.getDataBuffer().getOffset() + sourceModel.getBandOffsets()[0];
+        int srcStride = sourceModel.getScanlineStride();
+        int dstBase = target.getDataBuffer().getOffset() + targetModel.getBandOffsets()[0];
+        int dstStride = targetModel.getScanlineStride();
+        Mapping mapping = new Mapping(source.getWidth(), source.getHeight(), srcStride, quarterTurns);
+        rows(target, dy -> {
+            int row = dstBase + dy * dstStride;
+            for (int dx = 0; dx < target.getWidth(); dx++) {
+                dst[row + dx] = src[srcBase + mapping.index(dx, dy)];
+            }
+        });
+    }
+
+    /**
+     * Remaps packed 1-bit pixels, most significant bit first. Every destination row is assembled
+     * byte by byte, so rows never share a byte and can be written concurrently.
+     */
+    private static void rotateBits(WritableRaster source, WritableRaster target, int quarterTurns) {
+        byte[] src = ((DataBufferByte) source.getDataBuffer()).getData();
+        byte[] dst = ((DataBufferByte) target.getDataBuffer()).getData();
+        MultiPixelPackedSampleModel sourceModel = (MultiPixelPackedSampleModel) source.getSampleModel();
+        MultiPixelPackedSampleModel targetModel = (MultiPixelPackedSampleModel) target.getSampleModel();
+        int srcBase = source.getDataBuffer().getOffset();
+        int srcStride = sourceModel.getScanlineStride();
+        int dstBase = target.getDataBuffer().getOffset();
+        int dstStride = targetModel.getScanlineStride();
+        int width = source.getWidth();
+        int height = source.getHeight();
+        rows(target, dy -> {
+            int row = dstBase + dy * dstStride;
+            int bits = 0;
+            for (int dx = 0; dx < target.getWidth(); dx++) {
+                int sx;
+                int sy;
+                switch (quarterTurns) {
+                    case 1 -> {
+                        sx = dy;
+                        sy = height - 1 - dx;
+                    }
+                    case 2 -> {
+                        sx = width - 1 - dx;
+                        sy = height - 1 - dy;
+                    }
+                    default -> {
+                        sx = width - 1 - dy;
+                        sy = dx;
+                    }
+                }
+                int bit = (src[srcBase + sy * srcStride + (sx >> 3)] >> (7 - (sx & 7))) & 1;
+                bits = (bits << 1) | bit;
+                if ((dx & 7) == 7) {
+                    dst[row + (dx >> 3)] = (byte) bits;
+                    bits = 0;
+                }
+            }
+            int remainder = target.getWidth() & 7;
+            if (remainder != 0) {
+                dst[row + (target.getWidth() >> 3)] = (byte) (bits << (8 - remainder));
+            }
+        });
+    }
+
+    /**
+     * Remaps any raster a source row at a time, writing it as a destination row or column.
+     */
+    private static void rotateSamples(WritableRaster source, WritableRaster target, int quarterTurns) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] samples = new int[width];
+        int[] reversed = new int[width];
+        for (int y = 0; y < height; y++) {
+            for (int band = 0; band < source.getNumBands(); band++) {
+                source.getSamples(0, y, width, 1, band, samples);
+                for (int x = 0; x < width; x++) {
+                    reversed[x] = samples[width - 1 - x];
+                }
+                switch (quarterTurns) {
+                    case 1 -> target.setSamples(height - 1 - y, 0, 1, width, band, samples);
+                    case 2 -> target.setSamples(0, height - 1 - y, width, 1, band, reversed);
+                    default -> target.setSamples(y, 0, 1, width, band, reversed);
+                }
+            }
+        }
+    }
+
+    private static void rows(WritableRaster target, RowTask task) {
+        IntStream rows = IntStream.range(0, target.getHeight());
+        if ((long) target.getWidth() * target.getHeight() >= PARALLEL_THRESHOLD) {
+            rows = rows.parallel();
+        }
+        rows.forEach(task::remap);
+    }
+
+    @FunctionalInterface
+    private interface RowTask {
+        void remap(int dy);
+    }
+
+    /**
+     * Maps a destination pixel to the index of its source pixel, for one pixel per array element.
+     */
+    private record Mapping(int width, int height, int stride, int quarterTurns) {
+
+        int index(int dx, int dy) {
+            return switch (quarterTurns) {
+                case 1 -> (height - 1 - dx) * stride + dy;
+                case 2 -> (height - 1 - dy) * stride + (width - 1 - dx);
+                default -> dx * stride + (width - 1 - dy);
+            };
+        }
+    }
+}
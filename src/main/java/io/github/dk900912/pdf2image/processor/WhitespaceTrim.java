@@ -0,0 +1,114 @@
+package io.github.dk900912.pdf2image.processor;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Trims the white margins of a page. Rows are scanned inwards from the top and the bottom,
+ * then columns from the left and the right between the rows kept, and every scan stops at the
+ * first line holding a dark pixel, so only the margins and one line per side are read.
+ *
+ * @author dukui
+ */
+final class WhitespaceTrim {
+
+    private WhitespaceTrim() {
+    }
+
+    /**
+     * Trims an image to the box of its pixels darker than white minus the tolerance.
+     *
+     * @param image the source image
+     * @param tolerance how far below white a pixel may be and still count as margin
+     * @return a view of the source image without its margins, or the source itself when it
+     * has no margins or no dark pixel at all
+     */
+    static BufferedImage trim(BufferedImage image, int tolerance) {
+        Rectangle bounds = inkBounds(image, 255 - tolerance);
+        if (bounds == null || (bounds.width == image.getWidth() && bounds.height == image.getHeight())) {
+            return image;
+        }
+        return image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    /**
+     * Returns the box of the pixels with a luminance below the threshold, or {@code null} if there is none.
+     */
+    static Rectangle inkBounds(BufferedImage image, int threshold) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Lines lines = new Lines(image, threshold, new int[Math.max(width, height)]);
+
+        int top = 0;
+        while (top < height && !lines.hasInk(0, top, width, 1)) {
+            top++;
+        }
+        if (top == height) {
+            return null;
+        }
+        int bottom = height - 1;
+        while (bottom > top && !lines.hasInk(0, bottom, width, 1)) {
+            bottom--;
+        }
+        int rows = bottom - top + 1;
+        int left = 0;
+        while (!lines.hasInk(left, top, 1, rows)) {
+            left++;
+        }
+        int right = width - 1;
+        while (right > left && !lines.hasInk(right, top, 1, rows)) {
+            right--;
+        }
+        return new Rectangle(left, top, right - left + 1, rows);
+    }
+
+    /**
+     * Reads single rows or columns of an image as luminance, straight from the raster for the
+     * raster types of the image modes.
+     */
+    private record Lines(BufferedImage image, int threshold, int[] buffer) {
+
+        boolean hasInk(int x, int y, int width, int height) {
+            int count = width * height;
+            WritableRaster raster = image.getRaster();
+            switch (image.getType()) {
+                case BufferedImage.TYPE_BYTE_GRAY -> {
+                    raster.getSamples(x, y, width, height, 0, buffer);
+                    for (int i = 0; i < count; i++) {
+                        if (buffer[i] < threshold) {
+                            return true;
+                        }
+                    }
+                }
+                case BufferedImage.TYPE_BYTE_BINARY -> {
+                    raster.getSamples(x, y, width, height, 0, buffer);
+                    ColorModel colorModel = image.getColorModel();
+                    for (int i = 0; i < count; i++) {
+                        if (luminance(colorModel.getRGB(buffer[i])) < threshold) {
+                            return true;
+                        }
+                    }
+                }
+                default -> {
+                    if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+                        raster.getDataElements(x, y, width, height, buffer);
+                    } else {
+                        image.getRGB(x, y, width, height, buffer, 0, width);
+                    }
+                    for (int i = 0; i < count; i++) {
+                        if (luminance(buffer[i]) < threshold) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        private static int luminance(int rgb) {
+            return (((rgb >> 16) & 0xFF) * 77 + ((rgb >> 8) & 0xFF) * 150 + (rgb & 0xFF) * 29) >> 8;
+        }
+    }
+}
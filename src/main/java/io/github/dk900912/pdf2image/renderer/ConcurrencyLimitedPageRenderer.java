@@ -0,0 +1,123 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decorator that caps how many pages are rendered at the same time.
+ * Rendering is CPU-bound, so when many documents are converted concurrently
+ * (for example one per virtual thread) the permits keep the number of busy
+ * rendering threads close to the number of cores. Sharing one {@link Semaphore}
+ * between several instances turns it into a process-wide limit.
+ *
+ * @author dukui
+ */
+public class ConcurrencyLimitedPageRenderer implements PageRenderer {
+
+    private final PageRenderer delegate;
+    private final Semaphore permits;
+
+    public ConcurrencyLimitedPageRenderer(PageRenderer delegate, int maxConcurrentRenders) {
+        this(delegate, new Semaphore(maxConcurrentRenders, true));
+    }
+
+    public ConcurrencyLimitedPageRenderer(PageRenderer delegate, Semaphore permits) {
+        if (delegate == null || permits == null) {
+            throw new IllegalArgumentException("All dependencies must be non-null");
+        }
+        this.delegate = delegate;
+        this.permits = permits;
+    }
+
+    @Override
+    public BufferedImage renderPage(Context context) {
+        acquirePermit();
+        try {
+            return delegate.renderPage(context);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Copying an encoded page does not render, so it needs no permit.
+     */
+    @Override
+    public Optional<byte[]> extractEncodedPage(Context context) {
+        return delegate.extractEncodedPage(context);
+    }
+
+    /**
+     * Holds a permit while the delegate sets up the bands and while each band is rendered.
+     * The permit is handed back while a band is consumed, so encoding it does not hold up other renders.
+     */
+    @Override
+    public PageBands renderBands(Context context, int bandHeight) {
+        PageBands bands;
+        acquirePermit();
+        try {
+            bands = delegate.renderBands(context, bandHeight);
+        } finally {
+            permits.release();
+        }
+        return new PageBands() {
+            @Override
+            public int getWidth() {
+                return bands.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return bands.getHeight();
+            }
+
+            @Override
+            public void forEachBand(BandConsumer consumer) throws IOException {
+                AtomicBoolean held = new AtomicBoolean();
+                acquirePermit();
+                held.set(true);
+                try {
+                    bands.forEachBand((band, y) -> {
+                        permits.release();
+                        held.set(false);
+                        try {
+                            consumer.accept(band, y);
+                        } finally {
+                            acquirePermit();
+                            held.set(true);
+                        }
+                    });
+                } finally {
+                    if (held.get()) {
+                        permits.release();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void prepare(Context context) {
+        delegate.prepare(context);
+    }
+
+    @Override
+    public void cleanup(Context context) {
+        delegate.cleanup(context);
+    }
+
+    private void acquirePermit() {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Pdf2ImageException("Interrupted while waiting for a render permit", e);
+        }
+    }
+}
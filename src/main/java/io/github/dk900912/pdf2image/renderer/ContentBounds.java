@@ -0,0 +1,234 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import org.apache.fontbox.util.BoundingBox;
+import org.apache.pdfbox.contentstream.PDFGraphicsStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImage;
+import org.apache.pdfbox.pdmodel.graphics.state.PDGraphicsState;
+import org.apache.pdfbox.pdmodel.graphics.state.RenderingMode;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.util.Matrix;
+import org.apache.pdfbox.util.Vector;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Computes the box a page paints into, in default user space, by running its content stream
+ * without drawing anything. Paths count with their stroke width, glyphs with their font's
+ * bounding box, images with their unit square, and everything is clipped to the clipping path
+ * it is painted through; annotations count with their rectangles.
+ *
+ * <p>The box is conservative: white fills and glyphs smaller than their font's bounding box
+ * still count, so it may be larger than the visible content but never smaller.</p>
+ *
+ * @author dukui
+ */
+final class ContentBounds extends PDFGraphicsStreamEngine {
+
+    /**
+     * The line join style of the PDF specification with sharp, extended corners.
+     */
+    private static final int MITER_JOIN = 0;
+
+    private final RenderGuard guard;
+    private final Point2D.Float currentPoint = new Point2D.Float();
+    private Rectangle2D path;
+    private Rectangle2D bounds;
+
+    private ContentBounds(PDPage page, RenderGuard guard) {
+        super(page);
+        this.guard = guard;
+    }
+
+    /**
+     * Returns the box a page paints into. The guard is checked before every content stream
+     * operator, like while the page is drawn.
+     *
+     * @param page the page
+     * @param guard the render guard of the page
+     * @return the box in default user space, or {@code null} if the page paints nothing
+     * @exception IOException if the content stream cannot be processed
+     */
+    static Rectangle2D of(PDPage page, RenderGuard guard) throws IOException {
+        ContentBounds engine = new ContentBounds(page, guard);
+        engine.processPage(page);
+        for (PDAnnotation annotation : page.getAnnotations()) {
+            PDRectangle rectangle = annotation.getRectangle();
+            if (rectangle != null && !annotation.isHidden() && !annotation.isNoView()) {
+                engine.include(new Rectangle2D.Float(rectangle.getLowerLeftX(), rectangle.getLowerLeftY(),
+                        rectangle.getWidth(), rectangle.getHeight()));
+            }
+        }
+        return engine.bounds;
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        guard.check();
+        super.processOperator(operator, operands);
+    }
+
+    @Override
+    public void appendRectangle(Point2D p0, Point2D p1, Point2D p2, Point2D p3) {
+        extendPath(p0);
+        extendPath(p1);
+        extendPath(p2);
+        extendPath(p3);
+        currentPoint.setLocation(p0);
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        extendPath(new Point2D.Float(x, y));
+        currentPoint.setLocation(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        extendPath(new Point2D.Float(x, y));
+        currentPoint.setLocation(x, y);
+    }
+
+    /**
+     * A Bézier curve lies within the hull of its control points, which therefore bound it.
+     */
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        extendPath(new Point2D.Float(x1, y1));
+        extendPath(new Point2D.Float(x2, y2));
+        extendPath(new Point2D.Float(x3, y3));
+        currentPoint.setLocation(x3, y3);
+    }
+
+    @Override
+    public Point2D getCurrentPoint() {
+        return currentPoint;
+    }
+
+    @Override
+    public void closePath() {
+        // the start point is already part of the path's box
+    }
+
+    @Override
+    public void endPath() {
+        path = null;
+    }
+
+    @Override
+    public void clip(int windingRule) {
+        // the clipping path is kept by the graphics state and applied when something is painted
+    }
+
+    @Override
+    public void strokePath() {
+        paintPath(true);
+    }
+
+    @Override
+    public void fillPath(int windingRule) {
+        paintPath(false);
+    }
+
+    @Override
+    public void fillAndStrokePath(int windingRule) {
+        paintPath(true);
+    }
+
+    @Override
+    public void shadingFill(COSName shadingName) {
+        add(getGraphicsState().getCurrentClippingPath().getBounds2D());
+    }
+
+    @Override
+    public void drawImage(PDImage pdImage) {
+        AffineTransform ctm = getGraphicsState().getCurrentTransformationMatrix().createAffineTransform();
+        add(ctm.createTransformedShape(new Rectangle2D.Float(0, 0, 1, 1)));
+    }
+
+    /**
+     * Counts a glyph with the bounding box of its font, or with its advance and the font size
+     * when the font declares no box. Glyphs are not drawn, so Type 3 glyph procedures are not run.
+     */
+    @Override
+    protected void showGlyph(Matrix textRenderingMatrix, PDFont font, int code, Vector displacement)
+            throws IOException {
+        RenderingMode mode = getGraphicsState().getTextState().getRenderingMode();
+        if (!mode.isFill() && !mode.isStroke()) {
+            return;
+        }
+        AffineTransform transform = textRenderingMatrix.createAffineTransform();
+        BoundingBox box = font.getBoundingBox();
+        Rectangle2D glyph;
+        if (box != null && box.getWidth() > 0 && box.getHeight() > 0) {
+            transform.concatenate(font.getFontMatrix().createAffineTransform());
+            glyph = new Rectangle2D.Float(box.getLowerLeftX(), box.getLowerLeftY(), box.getWidth(), box.getHeight());
+        } else {
+            glyph = new Rectangle2D.Float(0, -0.25f, Math.max(displacement.getX(), 1), 1.25f);
+        }
+        add(transform.createTransformedShape(glyph));
+    }
+
+    private void extendPath(Point2D point) {
+        if (path == null) {
+            path = new Rectangle2D.Double(point.getX(), point.getY(), 0, 0);
+        } else {
+            path.add(point);
+        }
+    }
+
+    /**
+     * Counts the current path and starts a new one. A stroked path is widened by the full line
+     * width, which covers round and projecting caps and bevel joins, or by half the miter length
+     * under miter joins, whose spikes reach up to half the miter limit times the line width past
+     * their vertex.
+     */
+    private void paintPath(boolean stroke) {
+        if (path != null) {
+            Rectangle2D painted = path.getBounds2D();
+            if (stroke) {
+                PDGraphicsState state = getGraphicsState();
+                Matrix ctm = state.getCurrentTransformationMatrix();
+                double lineWidth = state.getLineWidth()
+                        * Math.max(Math.abs(ctm.getScalingFactorX()), Math.abs(ctm.getScalingFactorY()));
+                double padding = state.getLineJoin() == MITER_JOIN
+                        ? Math.max(lineWidth, state.getMiterLimit() * lineWidth / 2)
+                        : lineWidth;
+                painted.setRect(painted.getX() - padding, painted.getY() - padding,
+                        painted.getWidth() + 2 * padding, painted.getHeight() + 2 * padding);
+            }
+            add(painted);
+        }
+        path = null;
+    }
+
+    /**
+     * Adds a painted shape to the bounds, clipped to the current clipping path.
+     */
+    private void add(Shape shape) {
+        Rectangle2D clip = getGraphicsState().getCurrentClippingPath().getBounds2D();
+        include(shape.getBounds2D().createIntersection(clip));
+    }
+
+    private void include(Rectangle2D painted) {
+        if (painted.getWidth() < 0 || painted.getHeight() < 0) {
+            // clipped away
+            return;
+        }
+        if (bounds == null) {
+            bounds = painted;
+        } else {
+            bounds.add(painted);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import org.apache.pdfbox.pdmodel.font.FontMappers;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Preloads the fonts PDFBox otherwise loads lazily while rendering the first page of a JVM:
+ * the system font index behind the font mapper and the Standard 14 fonts with their metrics
+ * and substitutes. The warm-up runs once per JVM on a background daemon thread.
+ *
+ * <p>PDFBox persists the system font index in a {@code .pdfbox.cache} file and only rescans
+ * fonts that changed, so later JVMs start from the persisted index. The file lives in the
+ * user's home directory unless a font cache directory is given to {@link #start(Path)} before
+ * PDFBox first looks up a font, which lets containers keep it on a volume that survives restarts.</p>
+ *
+ * <p>Pages rendered while the warm-up is running wait for the font index instead of building
+ * it a second time.</p>
+ *
+ * @author dukui
+ */
+public final class FontWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontWarmup.class);
+
+    /**
+     * System property naming the directory of PDFBox's font index file.
+     */
+    public static final String FONT_CACHE_PROPERTY = "pdfbox.fontcache";
+
+    private static CompletableFuture<Void> warmup;
+
+    private FontWarmup() {
+    }
+
+    /**
+     * Starts the warm-up in the background, unless it was already started.
+     *
+     * @return a future completing once the fonts are loaded
+     */
+    public static synchronized CompletableFuture<Void> start() {
+        if (warmup == null) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            warmup = future;
+            Thread.ofPlatform().daemon().name("pdf2image-font-warmup").start(() -> run(future));
+        }
+        return warmup;
+    }
+
+    /**
+     * Starts the warm-up in the background, keeping the font index in the given directory.
+     * The directory has no effect once the warm-up was started or PDFBox has looked up a font.
+     *
+     * @param fontCacheDirectory the directory of the persisted font index
+     * @return a future completing once the fonts are loaded
+     */
+    public static synchronized CompletableFuture<Void> start(Path fontCacheDirectory) {
+        if (warmup == null) {
+            try {
+                Files.createDirectories(fontCacheDirectory);
+            } catch (IOException e) {
+                throw new Pdf2ImageException("Failed to create font cache directory: " + fontCacheDirectory, e);
+            }
+            System.setProperty(FONT_CACHE_PROPERTY, fontCacheDirectory.toAbsolutePath().toString());
+        }
+        return start();
+    }
+
+    /**
+     * Warms up the fonts and waits until they are loaded.
+     *
+     * @exception Pdf2ImageException if the fonts cannot be loaded
+     */
+    public static void warmUp() {
+        try {
+            start().join();
+        } catch (CompletionException e) {
+            throw new Pdf2ImageException("Font warm-up failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns whether the warm-up has completed successfully.
+     */
+    public static synchronized boolean isWarm() {
+        return warmup != null && warmup.isDone() && !warmup.isCompletedExceptionally();
+    }
+
+    private static void run(CompletableFuture<Void> future) {
+        long start = System.nanoTime();
+        try {
+            // the first lookup builds the system font index, or reads it back from the font cache file
+            FontMappers.instance();
+            for (Standard14Fonts.FontName name : Standard14Fonts.FontName.values()) {
+                // loads the AFM metrics and maps the font to its system or bundled substitute
+                new PDType1Font(name);
+            }
+            logger.info("Warmed up fonts in {} ms", (System.nanoTime() - start) / 1_000_000);
+            future.complete(null);
+        } catch (RuntimeException | Error e) {
+            logger.warn("Font warm-up failed, fonts will be loaded while rendering", e);
+            future.completeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+/**
+ * A page rendered as horizontal bands, top to bottom, so that only one band has to be
+ * held in memory at a time. Bands are rendered while they are consumed.
+ *
+ * @author dukui
+ */
+public interface PageBands {
+
+    /**
+     * Returns the width of the page, which is also the width of every band.
+     *
+     * @return the width in pixels
+     */
+    int getWidth();
+
+    /**
+     * Returns the height of the whole page.
+     *
+     * @return the height in pixels
+     */
+    int getHeight();
+
+    /**
+     * Renders the bands of the page and hands them to the consumer in order.
+     * A band may be reused for the next one, so it is only valid during the call.
+     *
+     * @param consumer receives every band with the row it starts at
+     * @exception IOException if rendering or consuming a band fails
+     */
+    void forEachBand(BandConsumer consumer) throws IOException;
+
+    /**
+     * Receives the bands of a page.
+     */
+    @FunctionalInterface
+    interface BandConsumer {
+        void accept(BufferedImage band, int y) throws IOException;
+    }
+}
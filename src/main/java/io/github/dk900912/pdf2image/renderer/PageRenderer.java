@@ -4,6 +4,8 @@ import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
 
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.Optional;
 
 /**
  * Interface for rendering PDF pages to images.
@@ -20,4 +22,65 @@ public interface PageRenderer {
      * @exception Pdf2ImageException if rendering fails
      */
     BufferedImage renderPage(Context context);
+
+    /**
+     * Renders the current page as horizontal bands of at most {@code bandHeight} rows.
+     * The default implementation renders the whole page and hands out views of it,
+     * so only renderers overriding it keep memory proportional to the band.
+     *
+     * @param context the conversion context
+     * @param bandHeight the maximum height of a band in pixels
+     * @return the bands of the page, rendered while they are consumed
+     */
+    default PageBands renderBands(Context context, int bandHeight) {
+        BufferedImage image = renderPage(context);
+        return new PageBands() {
+            @Override
+            public int getWidth() {
+                return image.getWidth();
+            }
+
+            @Override
+            public int getHeight() {
+                return image.getHeight();
+            }
+
+            @Override
+            public void forEachBand(BandConsumer consumer) throws IOException {
+                for (int y = 0; y < image.getHeight(); y += bandHeight) {
+                    consumer.accept(image.getSubimage(0, y, image.getWidth(),
+                            Math.min(bandHeight, image.getHeight() - y)), y);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the current page already encoded in the configured image format, when the page can be
+     * copied from the document instead of being rendered and encoded again (optional operation).
+     * The encoded page is stored as it is, bypassing the image processor.
+     *
+     * @param context the conversion context
+     * @return the encoded page, or empty if the page has to be rendered
+     * @exception Pdf2ImageException if the page cannot be read
+     */
+    default Optional<byte[]> extractEncodedPage(Context context) {
+        return Optional.empty();
+    }
+
+    /**
+     * Opens a render session for the document in the context (optional operation).
+     * Pages of the same document rendered with this context afterwards may reuse the
+     * renderer state set up here. A session belongs to one document and one thread.
+     */
+    default void prepare(Context context) {
+        // Default implementation does nothing
+    }
+
+    /**
+     * Closes the render session opened by {@link #prepare(Context)} (optional operation).
+     */
+    default void cleanup(Context context) {
+        // Default implementation does nothing
+    }
 }
\ No newline at end of file
@@ -6,14 +6,34 @@ import io.github.dk900912.pdf2image.config.RenderingConfig;
 import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.context.ContextBase;
 import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.processor.ImageDownscaler;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.blend.BlendMode;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.rendering.ImageType;
 import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.PageDrawer;
+import org.apache.pdfbox.rendering.PageDrawerParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * PDFBox implementation of PageRenderer.
@@ -32,33 +52,168 @@ public class PdfBoxPageRenderer implements PageRenderer {
         int pageIndex = (int) ((ContextBase) context).get("page-index");
         ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
 
+        RenderSession session = sessionFor(context, document, config);
+
         try {
-            PDFRenderer renderer = createRenderer(document, config.getRenderingConfig());
-            float scale = calculateScale(config.getResolution().getDpi());
-            ImageType imageType = mapImageMode(config.getImageMode());
+            if (config.isScannedPageFastPath()) {
+                ScannedPage scanned = ScannedPage.detect(document.getPage(pageIndex));
+                if (scanned != null) {
+                    logger.debug("Decoding the image of scanned page {} instead of rendering it", pageIndex + 1);
+                    ((ContextBase) context).put("rotation-applied", false);
+                    return session.decode(pageIndex, scanned);
+                }
+            }
+
+            PDPage page = document.getPage(pageIndex);
+            logger.debug("Rendering page {} with scale {} and image type {}",
+                    pageIndex + 1, session.calculateScale(page), session.imageType);
 
-            logger.debug("Rendering page {} with DPI {} and image type {}",
-                    pageIndex + 1, config.getResolution().getDpi(), imageType);
+            // rasterize only what the page paints, the image processor trims the rest
+            if (config.isEnableCropping() && config.getRotationDegrees() == 0 && !hasBlendMode(page)) {
+                // one guard for both passes, so the page deadline covers the bounds pass as well
+                RenderGuard guard = RenderGuard.forPage(context);
+                Rectangle region = session.contentRegion(page, guard);
+                if (region != null) {
+                    logger.debug("Rendering region {} of page {}", region, pageIndex + 1);
+                    ((ContextBase) context).put("rotation-applied", false);
+                    return session.renderRegion(pageIndex, region, guard);
+                }
+            }
 
-            return renderer.renderImage(pageIndex, scale, imageType);
+            // rotate while drawing, so that the page is rendered straight into its final bitmap
+            boolean rotate = config.getRotationDegrees() != 0 && !hasBlendMode(page);
+            ((ContextBase) context).put("rotation-applied", rotate);
+            return session.render(pageIndex, rotate ? config.getRotationDegrees() : 0, RenderGuard.forPage(context));
         } catch (IOException e) {
             throw new Pdf2ImageException("Failed to render page " + (pageIndex + 1), e);
         }
     }
 
+    @Override
+    public PageBands renderBands(Context context, int bandHeight) {
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        int pageIndex = (int) ((ContextBase) context).get("page-index");
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+
+        RenderSession session = sessionFor(context, document, config);
+        PDPage page = document.getPage(pageIndex);
+        Dimension size = session.pixelSize(page);
+        // pages with blend modes are composed on an ARGB band, as PDFBox composes them on an ARGB page
+        boolean compose = hasBlendMode(page);
+
+        return new PageBands() {
+            @Override
+            public int getWidth() {
+                return size.width;
+            }
+
+            @Override
+            public int getHeight() {
+                return size.height;
+            }
+
+            @Override
+            public void forEachBand(BandConsumer consumer) throws IOException {
+                logger.debug("Rendering page {} in bands of {} rows", pageIndex + 1, bandHeight);
+                session.renderBands(pageIndex, size, bandHeight, compose, RenderGuard.forPage(context), consumer);
+            }
+        };
+    }
+
+    /**
+     * Copies the JPEG image of a scanned page when it already is the page as it would be rendered.
+     */
+    @Override
+    public Optional<byte[]> extractEncodedPage(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (!config.isScannedPageFastPath()) {
+            return Optional.empty();
+        }
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        int pageIndex = (int) ((ContextBase) context).get("page-index");
+        RenderSession session = sessionFor(context, document, config);
+
+        try {
+            PDPage page = document.getPage(pageIndex);
+            ScannedPage scanned = ScannedPage.detect(page);
+            if (scanned == null || !scanned.isPassThrough(config, session.pixelSize(page))) {
+                return Optional.empty();
+            }
+            logger.debug("Copying the JPEG image of scanned page {}", pageIndex + 1);
+            return Optional.of(scanned.readEncoded());
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to read page " + (pageIndex + 1), e);
+        }
+    }
+
+    @Override
+    public void prepare(Context context) {
+        PDDocument document = (PDDocument) ((ContextBase) context).get("document");
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        ((ContextBase) context).put("render-session", openSession(document, config));
+    }
+
+    @Override
+    public void cleanup(Context context) {
+        ((ContextBase) context).remove("render-session");
+    }
+
+    /**
+     * Returns the session prepared for the document, or a one-off session if none was prepared.
+     */
+    private RenderSession sessionFor(Context context, PDDocument document, ConversionConfig config) {
+        RenderSession session = (RenderSession) ((ContextBase) context).get("render-session");
+        if (session == null || session.document != document) {
+            return openSession(document, config);
+        }
+        return session;
+    }
+
+    /**
+     * Sets up the renderer, sizing and image type shared by all pages of a document.
+     */
+    private RenderSession openSession(PDDocument document, ConversionConfig config) {
+        return new RenderSession(
+                document,
+                createRenderer(document, config.getRenderingConfig(), config.getImageMode()),
+                config,
+                mapImageMode(config.getImageMode()),
+                config.getImageMode().getBufferedImageType());
+    }
+
     /**
      * Creates a PDFRenderer with appropriate rendering hints.
      */
-    private PDFRenderer createRenderer(PDDocument document, RenderingConfig config) {
-        return new PDFRenderer(document);
+    private GuardedPdfRenderer createRenderer(PDDocument document, RenderingConfig config, ImageMode mode) {
+        GuardedPdfRenderer renderer = new GuardedPdfRenderer(document);
+        renderer.setSubsamplingAllowed(config.isEnableSubsampling());
+        renderer.setDefaultDestination(config.getRenderDestination());
+        if (mode != ImageMode.BLACK_AND_WHITE) {
+            // for bitonal output PDFBox already picks its fastest hints, anti-aliasing would only blur edges
+            renderer.setRenderingHints(createRenderingHints(config));
+        }
+        return renderer;
     }
 
     /**
-     * Calculates the scale factor from DPI.
-     * Standard DPI is 72, so scale = targetDPI / 72
+     * Translates the rendering configuration into Java2D rendering hints.
      */
-    private float calculateScale(int dpi) {
-        return dpi / 72f;
+    private RenderingHints createRenderingHints(RenderingConfig config) {
+        RenderingHints hints = new RenderingHints(null);
+        hints.put(RenderingHints.KEY_ANTIALIASING, config.isEnableAntiAliasing()
+                ? RenderingHints.VALUE_ANTIALIAS_ON
+                : RenderingHints.VALUE_ANTIALIAS_OFF);
+        hints.put(RenderingHints.KEY_TEXT_ANTIALIASING, config.isEnableTextAntiAliasing()
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_ON
+                : RenderingHints.VALUE_TEXT_ANTIALIAS_OFF);
+        hints.put(RenderingHints.KEY_FRACTIONALMETRICS, config.isEnableFractionalMetrics()
+                ? RenderingHints.VALUE_FRACTIONALMETRICS_ON
+                : RenderingHints.VALUE_FRACTIONALMETRICS_OFF);
+        hints.put(RenderingHints.KEY_INTERPOLATION, config.getInterpolation().getHintValue());
+        hints.put(RenderingHints.KEY_RENDERING, config.isEnableAntiAliasing()
+                ? RenderingHints.VALUE_RENDER_QUALITY
+                : RenderingHints.VALUE_RENDER_SPEED);
+        return hints;
     }
 
     /**
@@ -71,4 +226,246 @@ public class PdfBoxPageRenderer implements PageRenderer {
             case BLACK_AND_WHITE -> ImageType.BINARY;
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns whether the page uses blend modes. PDFBox composes such pages on an ARGB bitmap
+     * and converts it afterwards, so they gain nothing from drawing into the target raster and
+     * are rotated by the image processor instead of while they are drawn.
+     *
+     * @param page the page
+     * @return {@code true} if the page's graphics states use a blend mode other than normal
+     */
+    public static boolean hasBlendMode(PDPage page) {
+        PDResources resources = page.getResources();
+        if (resources == null) {
+            return false;
+        }
+        for (COSName name : resources.getExtGStateNames()) {
+            PDExtendedGraphicsState state = resources.getExtGState(name);
+            if (state != null && state.getBlendMode() != BlendMode.NORMAL) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renderer state reused across the pages of one document.
+     * Like the PDDocument it renders, a session must only be used by one thread at a time.
+     */
+    private static final class RenderSession {
+
+        private final PDDocument document;
+        private final GuardedPdfRenderer renderer;
+        private final ConversionConfig config;
+        private final ImageType imageType;
+        private final int bufferedImageType;
+
+        RenderSession(PDDocument document, GuardedPdfRenderer renderer, ConversionConfig config, ImageType imageType,
+                      int bufferedImageType) {
+            this.document = document;
+            this.renderer = renderer;
+            this.config = config;
+            this.imageType = imageType;
+            this.bufferedImageType = bufferedImageType;
+        }
+
+        BufferedImage render(int pageIndex, int rotationDegrees, RenderGuard guard) throws IOException {
+            renderer.guard = guard;
+            try {
+                if (rotationDegrees == 0) {
+                    return renderer.renderImage(pageIndex, calculateScale(document.getPage(pageIndex)), imageType);
+                }
+                return renderRotated(pageIndex, rotationDegrees);
+            } finally {
+                renderer.guard = null;
+            }
+        }
+
+        /**
+         * Decodes the image of a scanned page once and scales it to the page size, without
+         * compositing it onto a page bitmap. The image is subsampled while decoding when it has
+         * at least twice the pixels needed and subsampling is enabled.
+         */
+        BufferedImage decode(int pageIndex, ScannedPage scanned) throws IOException {
+            Dimension size = pixelSize(document.getPage(pageIndex));
+            PDImageXObject image = scanned.getImage();
+            int subsampling = 1;
+            if (config.getRenderingConfig().isEnableSubsampling()) {
+                subsampling = Math.max(1, Math.min(image.getWidth() / size.width, image.getHeight() / size.height));
+            }
+            BufferedImage decoded = image.getImage(null, subsampling);
+            return ImageDownscaler.scale(decoded, size.width, size.height, bufferedImageType);
+        }
+
+        /**
+         * Renders the page band by band into one reused band bitmap of the target image type.
+         * Every band draws the whole page through a translated transform and the band's bounds clip it.
+         */
+        void renderBands(int pageIndex, Dimension size, int bandHeight, boolean compose, RenderGuard guard,
+                         PageBands.BandConsumer consumer) throws IOException {
+            float scale = calculateScale(document.getPage(pageIndex));
+            int rows = Math.min(bandHeight, size.height);
+            BufferedImage band = new BufferedImage(size.width, rows, bufferedImageType);
+            BufferedImage canvas = compose ? new BufferedImage(size.width, rows, BufferedImage.TYPE_INT_ARGB) : band;
+            renderer.guard = guard;
+            try {
+                for (int y = 0; y < size.height; y += rows) {
+                    Graphics2D graphics = canvas.createGraphics();
+                    try {
+                        graphics.setBackground(Color.WHITE);
+                        graphics.clearRect(0, 0, size.width, rows);
+                        graphics.translate(0, -y);
+                        renderer.renderPageToGraphics(pageIndex, graphics, scale, scale, renderer.getDefaultDestination());
+                    } finally {
+                        graphics.dispose();
+                    }
+                    if (canvas != band) {
+                        Graphics2D copy = band.createGraphics();
+                        copy.drawImage(canvas, 0, 0, null);
+                        copy.dispose();
+                    }
+                    int height = Math.min(rows, size.height - y);
+                    consumer.accept(height == rows ? band : band.getSubimage(0, 0, size.width, height), y);
+                }
+            } finally {
+                renderer.guard = null;
+            }
+        }
+
+        /**
+         * Returns the pixels of the page bitmap that hold the page's content, padded by a pixel
+         * for anti-aliasing, or {@code null} if they cover the whole bitmap, are empty, or cannot
+         * be located because the page is rotated.
+         */
+        Rectangle contentRegion(PDPage page, RenderGuard guard) throws IOException {
+            if (page.getRotation() != 0) {
+                return null;
+            }
+            Rectangle2D bounds = ContentBounds.of(page, guard);
+            if (bounds == null) {
+                return null;
+            }
+            PDRectangle cropBox = page.getCropBox();
+            float scale = calculateScale(page);
+            Dimension size = pixelSize(page);
+            int left = (int) Math.floor((bounds.getMinX() - cropBox.getLowerLeftX()) * scale) - 1;
+            int right = (int) Math.ceil((bounds.getMaxX() - cropBox.getLowerLeftX()) * scale) + 1;
+            int top = (int) Math.floor((cropBox.getUpperRightY() - bounds.getMaxY()) * scale) - 1;
+            int bottom = (int) Math.ceil((cropBox.getUpperRightY() - bounds.getMinY()) * scale) + 1;
+            Rectangle bitmap = new Rectangle(size);
+            Rectangle region = bitmap.intersection(new Rectangle(left, top, right - left, bottom - top));
+            return region.isEmpty() || region.equals(bitmap) ? null : region;
+        }
+
+        /**
+         * Renders a region of the page into a bitmap of the region's size, drawing the whole page
+         * through a translated transform so that the region's bounds clip it.
+         */
+        BufferedImage renderRegion(int pageIndex, Rectangle region, RenderGuard guard) throws IOException {
+            float scale = calculateScale(document.getPage(pageIndex));
+            BufferedImage image = new BufferedImage(region.width, region.height, bufferedImageType);
+            Graphics2D graphics = image.createGraphics();
+            renderer.guard = guard;
+            try {
+                graphics.setBackground(Color.WHITE);
+                graphics.clearRect(0, 0, region.width, region.height);
+                graphics.translate(-region.x, -region.y);
+                renderer.renderPageToGraphics(pageIndex, graphics, scale, scale, renderer.getDefaultDestination());
+            } finally {
+                graphics.dispose();
+                renderer.guard = null;
+            }
+            return image;
+        }
+
+        /**
+         * Calculates the scale factor of a page from the configured DPI or target size,
+         * measuring the page as it is displayed.
+         */
+        float calculateScale(PDPage page) {
+            PDRectangle cropBox = page.getCropBox();
+            if (page.getRotation() == 90 || page.getRotation() == 270) {
+                return config.getScale(cropBox.getHeight(), cropBox.getWidth());
+            }
+            return config.getScale(cropBox.getWidth(), cropBox.getHeight());
+        }
+
+        /**
+         * Returns the size of the page bitmap, computed the way PDFBox sizes its own bitmaps.
+         */
+        Dimension pixelSize(PDPage page) {
+            PDRectangle cropBox = page.getCropBox();
+            float scale = calculateScale(page);
+            int width = (int) Math.max(Math.floor(cropBox.getWidth() * scale), 1);
+            int height = (int) Math.max(Math.floor(cropBox.getHeight() * scale), 1);
+            if (page.getRotation() == 90 || page.getRotation() == 270) {
+                return new Dimension(height, width);
+            }
+            return new Dimension(width, height);
+        }
+
+        /**
+         * Draws the page through a rotating transform into a bitmap of the target image type,
+         * sized like PDFBox sizes its own bitmaps and like the image processor rotates them.
+         */
+        private BufferedImage renderRotated(int pageIndex, int rotationDegrees) throws IOException {
+            PDPage page = document.getPage(pageIndex);
+            float scale = calculateScale(page);
+            Dimension size = pixelSize(page);
+            int width = size.width;
+            int height = size.height;
+
+            double radians = Math.toRadians(rotationDegrees);
+            double sin = Math.abs(Math.sin(radians));
+            double cos = Math.abs(Math.cos(radians));
+            int rotatedWidth = (int) Math.floor(width * cos + height * sin);
+            int rotatedHeight = (int) Math.floor(height * cos + width * sin);
+            if ((long) rotatedWidth * rotatedHeight > Integer.MAX_VALUE) {
+                throw new IOException("Maximum size of image exceeded (w * h * scale ^ 2) = "
+                        + rotatedWidth + " * " + rotatedHeight + " > " + Integer.MAX_VALUE);
+            }
+
+            BufferedImage image = new BufferedImage(rotatedWidth, rotatedHeight, bufferedImageType);
+            Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setBackground(Color.WHITE);
+                graphics.clearRect(0, 0, rotatedWidth, rotatedHeight);
+                graphics.translate((rotatedWidth - width) / 2.0, (rotatedHeight - height) / 2.0);
+                graphics.rotate(radians, width / 2.0, height / 2.0);
+                renderer.renderPageToGraphics(pageIndex, graphics, scale, scale, renderer.getDefaultDestination());
+            } finally {
+                graphics.dispose();
+            }
+            return image;
+        }
+    }
+
+    /**
+     * PDFRenderer whose page drawer checks the render guard of the current page before every
+     * content stream operator, so that cancellation and deadlines also stop pages that take
+     * minutes to draw.
+     */
+    private static final class GuardedPdfRenderer extends PDFRenderer {
+
+        private RenderGuard guard;
+
+        GuardedPdfRenderer(PDDocument document) {
+            super(document);
+        }
+
+        @Override
+        protected PageDrawer createPageDrawer(PageDrawerParameters parameters) throws IOException {
+            RenderGuard pageGuard = guard;
+            return new PageDrawer(parameters) {
+                @Override
+                protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+                    if (pageGuard != null) {
+                        pageGuard.check();
+                    }
+                    super.processOperator(operator, operands);
+                }
+            };
+        }
+    }
+}
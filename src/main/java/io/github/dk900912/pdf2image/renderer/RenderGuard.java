@@ -0,0 +1,123 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import io.github.dk900912.pdf2image.config.CancellationToken;
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.ConversionCancelledException;
+import io.github.dk900912.pdf2image.exception.PageTimeoutException;
+
+import java.time.Duration;
+
+/**
+ * Cooperative check of the cancellation token, the document deadline and the page deadline.
+ * The document deadline is stored in the context under {@code "document-deadline"} as a
+ * {@link System#nanoTime()} value when the conversion starts.
+ *
+ * @author dukui
+ */
+public final class RenderGuard {
+
+    /**
+     * Number of checks between two reads of the clock, so drawing operators stay cheap.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    private static final long NO_DEADLINE = Long.MIN_VALUE;
+
+    private final int pageNumber;
+    private final CancellationToken token;
+    private final long documentDeadline;
+    private final long pageDeadline;
+    private int checks;
+
+    private RenderGuard(int pageNumber, CancellationToken token, long documentDeadline, long pageDeadline) {
+        this.pageNumber = pageNumber;
+        this.token = token;
+        this.documentDeadline = documentDeadline;
+        this.pageDeadline = pageDeadline;
+    }
+
+    /**
+     * Starts guarding the current page; its page deadline is counted from now.
+     *
+     * @param context the page context
+     * @return the guard for the page
+     */
+    public static RenderGuard forPage(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        long now = System.nanoTime();
+        long pageDeadline = config.getPageTimeout()
+                .map(timeout -> now + timeout.toNanos())
+                .orElse(NO_DEADLINE);
+        return new RenderGuard(pageNumber, config.getCancellationToken().orElse(null),
+                documentDeadline(context), pageDeadline);
+    }
+
+    /**
+     * Computes the document deadline of a conversion starting now.
+     *
+     * @param config the conversion configuration
+     * @return the deadline as a {@link System#nanoTime()} value, or {@code null} if there is none
+     */
+    public static Long startDocument(ConversionConfig config) {
+        long now = System.nanoTime();
+        return config.getDocumentTimeout().map(Duration::toNanos).map(timeout -> now + timeout).orElse(null);
+    }
+
+    /**
+     * Checks cancellation and the document deadline between pages.
+     *
+     * @param context the conversion context
+     * @exception ConversionCancelledException if the conversion must stop
+     */
+    public static void checkDocument(Context context) {
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        checkCancelled(config.getCancellationToken().orElse(null));
+        if (isPast(documentDeadline(context), System.nanoTime())) {
+            throw new ConversionCancelledException("Document deadline exceeded");
+        }
+    }
+
+    /**
+     * Checks cancellation and both deadlines while the page is drawn.
+     *
+     * @exception ConversionCancelledException if the conversion must stop
+     * @exception PageTimeoutException if the page ran past its deadline
+     */
+    public void check() {
+        checkCancelled(token);
+        if (checks++ % CLOCK_INTERVAL != 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (isPast(documentDeadline, now)) {
+            throw new ConversionCancelledException("Document deadline exceeded while rendering page " + pageNumber);
+        }
+        if (isPast(pageDeadline, now)) {
+            throw new PageTimeoutException("Page " + pageNumber + " exceeded its render deadline");
+        }
+    }
+
+    private static void checkCancelled(CancellationToken token) {
+        if (token != null && token.isCancelled()) {
+            throw new ConversionCancelledException("Conversion cancelled");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new ConversionCancelledException("Conversion interrupted");
+        }
+    }
+
+    private static long documentDeadline(Context context) {
+        Long deadline = (Long) ((ContextBase) context).get("document-deadline");
+        return deadline != null ? deadline : NO_DEADLINE;
+    }
+
+    /**
+     * Compares by difference, since {@link System#nanoTime()} values may overflow.
+     */
+    private static boolean isPast(long deadline, long now) {
+        return deadline != NO_DEADLINE && now - deadline > 0;
+    }
+}
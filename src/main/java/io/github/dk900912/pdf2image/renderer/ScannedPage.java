@@ -0,0 +1,190 @@
+package io.github.dk900912.pdf2image.renderer;
+
+import io.github.dk900912.pdf2image.config.BlankPagePolicy;
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.ImageMode;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNumber;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.awt.Dimension;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A page whose only content is one image covering the whole page, as written by scanners.
+ * Such a page looks exactly like its image scaled to the page, so it can be taken from the
+ * image without rasterizing the page.
+ *
+ * <p>Detection is deliberately strict: the content stream may only save and restore the
+ * graphics state, concatenate axis-aligned matrices and paint a single image XObject without
+ * masks, decode array or optional content, the page must be unrotated and carry no annotations.</p>
+ *
+ * @author dukui
+ */
+final class ScannedPage {
+
+    /**
+     * How far, in points, the image may miss the crop box and still count as covering it.
+     */
+    private static final float PLACEMENT_TOLERANCE = 1f;
+
+    private final PDImageXObject image;
+
+    private ScannedPage(PDImageXObject image) {
+        this.image = image;
+    }
+
+    PDImageXObject getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the scanned page behind a page, if it is one.
+     *
+     * @param page the page
+     * @return the scanned page, or {@code null} if the page has other content
+     * @exception IOException if the content stream cannot be read
+     */
+    static ScannedPage detect(PDPage page) throws IOException {
+        PDResources resources = page.getResources();
+        if (resources == null || page.getRotation() != 0 || !page.getAnnotations().isEmpty()) {
+            return null;
+        }
+
+        Deque<Matrix> savedStates = new ArrayDeque<>();
+        Matrix ctm = new Matrix();
+        PDImageXObject image = null;
+        Matrix placement = null;
+        List<COSBase> operands = new ArrayList<>();
+        PDFStreamParser parser = new PDFStreamParser(page);
+        Object token;
+        while ((token = parser.parseNextToken()) != null) {
+            if (token instanceof COSBase operand) {
+                operands.add(operand);
+                continue;
+            }
+            switch (((Operator) token).getName()) {
+                case OperatorName.SAVE -> savedStates.push(ctm);
+                case OperatorName.RESTORE -> {
+                    if (savedStates.isEmpty()) {
+                        return null;
+                    }
+                    ctm = savedStates.pop();
+                }
+                case OperatorName.CONCAT -> {
+                    Matrix matrix = toMatrix(operands);
+                    if (matrix == null) {
+                        return null;
+                    }
+                    ctm = matrix.multiply(ctm);
+                }
+                case OperatorName.DRAW_OBJECT -> {
+                    if (image != null || operands.size() != 1 || !(operands.get(0) instanceof COSName name)) {
+                        return null;
+                    }
+                    PDXObject xobject = resources.getXObject(name);
+                    if (!(xobject instanceof PDImageXObject candidate) || !isOpaque(candidate)) {
+                        return null;
+                    }
+                    image = candidate;
+                    placement = ctm;
+                }
+                default -> {
+                    return null;
+                }
+            }
+            operands.clear();
+        }
+        return image != null && covers(placement, page.getCropBox()) ? new ScannedPage(image) : null;
+    }
+
+    /**
+     * Returns whether the embedded JPEG can be copied to the output unchanged: the output is a JPEG
+     * in the image's color space, nothing transforms or inspects the page and the image already has the size
+     * the page is rendered at, give or take the pixel lost to rounding.
+     *
+     * @param config the conversion configuration
+     * @param pageSize the size in pixels the page is rendered at
+     */
+    boolean isPassThrough(ConversionConfig config, Dimension pageSize) throws IOException {
+        if (!config.getImageFormat().getFormatName().equals("jpeg")
+                || config.getRotationDegrees() != 0
+                || config.isEnableCropping()
+                || config.getBlankPagePolicy() != BlankPagePolicy.KEEP
+                || !config.getAdditionalOutputs().isEmpty()) {
+            return false;
+        }
+        if (!List.of(COSName.DCT_DECODE).equals(image.getStream().getFilters())) {
+            return false;
+        }
+        PDColorSpace colorSpace = image.getColorSpace();
+        boolean sameColors = config.getImageMode() == ImageMode.COLOR
+                ? colorSpace instanceof PDDeviceRGB
+                : config.getImageMode() == ImageMode.GRAYSCALE && colorSpace instanceof PDDeviceGray;
+        return sameColors
+                && Math.abs(image.getWidth() - pageSize.width) <= 1
+                && Math.abs(image.getHeight() - pageSize.height) <= 1;
+    }
+
+    /**
+     * Returns the image stream as stored in the document, without decoding it.
+     */
+    byte[] readEncoded() throws IOException {
+        try (InputStream in = image.getCOSObject().createRawInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static boolean isOpaque(PDImageXObject image) {
+        COSStream stream = image.getCOSObject();
+        return !image.isStencil()
+                && !stream.containsKey(COSName.SMASK)
+                && !stream.containsKey(COSName.MASK)
+                && !stream.containsKey(COSName.DECODE)
+                && !stream.containsKey(COSName.OC);
+    }
+
+    /**
+     * Returns whether an image drawn with the given matrix covers the crop box, upright and unmirrored.
+     */
+    private static boolean covers(Matrix placement, PDRectangle cropBox) {
+        return placement.getShearX() == 0 && placement.getShearY() == 0
+                && placement.getScaleX() > 0 && placement.getScaleY() > 0
+                && Math.abs(placement.getTranslateX() - cropBox.getLowerLeftX()) <= PLACEMENT_TOLERANCE
+                && Math.abs(placement.getTranslateY() - cropBox.getLowerLeftY()) <= PLACEMENT_TOLERANCE
+                && Math.abs(placement.getScaleX() - cropBox.getWidth()) <= PLACEMENT_TOLERANCE
+                && Math.abs(placement.getScaleY() - cropBox.getHeight()) <= PLACEMENT_TOLERANCE;
+    }
+
+    private static Matrix toMatrix(List<COSBase> operands) {
+        if (operands.size() != 6) {
+            return null;
+        }
+        float[] values = new float[6];
+        for (int i = 0; i < 6; i++) {
+            if (!(operands.get(i) instanceof COSNumber number)) {
+                return null;
+            }
+            values[i] = number.floatValue();
+        }
+        return new Matrix(values[0], values[1], values[2], values[3], values[4], values[5]);
+    }
+}
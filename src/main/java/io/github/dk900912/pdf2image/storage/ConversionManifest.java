@@ -0,0 +1,198 @@
+package io.github.dk900912.pdf2image.storage;
+
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.RenderingConfig;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+/**
+ * Checkpoint manifest of a resumable conversion.
+ * Records every stored page together with its file size and CRC32C checksum, under a
+ * fingerprint of the input file and the output-affecting configuration. A later run with
+ * the same fingerprint skips pages whose output is still intact.
+ *
+ * <p>Format: a {@code fingerprint=} header line followed by one
+ * {@code pageNumber<TAB>fileName<TAB>size<TAB>crc32c} line per page. Lines are appended
+ * and flushed as pages complete, so a crash loses at most the page being written;
+ * a torn last line is ignored on reload.</p>
+ *
+ * @author dukui
+ */
+final class ConversionManifest implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConversionManifest.class);
+
+    private static final String FILE_NAME = ".pdf2image-manifest";
+
+    private static final String FINGERPRINT_PREFIX = "fingerprint=";
+
+    private final Path outputDirectory;
+    private final Map<Integer, Entry> completed = new ConcurrentHashMap<>();
+    private final BufferedWriter writer;
+
+    private ConversionManifest(Path outputDirectory, BufferedWriter writer) {
+        this.outputDirectory = outputDirectory;
+        this.writer = writer;
+    }
+
+    /**
+     * Opens the manifest of the output directory for the given configuration.
+     * If the existing manifest was written for a different input or configuration,
+     * {@code resetAction} is run to discard the stale outputs and a fresh manifest is started.
+     */
+    static ConversionManifest open(ConversionConfig config, Runnable resetAction) {
+        Path outputDirectory = config.getOutputDirectory();
+        Path manifestPath = outputDirectory.resolve(FILE_NAME);
+        try {
+            String fingerprint = fingerprint(config);
+            if (Files.exists(manifestPath)) {
+                List<String> lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+                if (!lines.isEmpty() && lines.get(0).equals(FINGERPRINT_PREFIX + fingerprint)) {
+                    ConversionManifest manifest = new ConversionManifest(outputDirectory,
+                            Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8, StandardOpenOption.APPEND));
+                    lines.stream().skip(1).forEach(manifest::parse);
+                    logger.info("Resuming conversion, {} pages already completed", manifest.completed.size());
+                    return manifest;
+                }
+                logger.info("Manifest fingerprint changed, starting conversion from scratch");
+            }
+            resetAction.run();
+            BufferedWriter writer = Files.newBufferedWriter(manifestPath, StandardCharsets.UTF_8);
+            writer.write(FINGERPRINT_PREFIX + fingerprint);
+            writer.newLine();
+            writer.flush();
+            return new ConversionManifest(outputDirectory, writer);
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to open conversion manifest: " + manifestPath, e);
+        }
+    }
+
+    /**
+     * Returns whether the page was completed by a previous run and its output is still intact.
+     */
+    boolean isCompleted(int pageNumber) {
+        Entry entry = completed.get(pageNumber);
+        if (entry == null) {
+            return false;
+        }
+        Path file = outputDirectory.resolve(entry.fileName());
+        try {
+            return Files.isRegularFile(file)
+                    && Files.size(file) == entry.size()
+                    && checksum(file) == entry.checksum();
+        } catch (IOException e) {
+            logger.debug("Cannot verify output of page {}, it will be converted again", pageNumber, e);
+            return false;
+        }
+    }
+
+    /**
+     * Records a stored page and flushes the record to disk.
+     */
+    synchronized void record(int pageNumber, String fileName, long size, long checksum) {
+        Entry entry = new Entry(fileName, size, checksum);
+        try {
+            writer.write(pageNumber + "\t" + fileName + "\t" + size + "\t" + Long.toHexString(checksum));
+            writer.newLine();
+            writer.flush();
+            completed.put(pageNumber, entry);
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to update conversion manifest for page " + pageNumber, e);
+        }
+    }
+
+    /**
+     * Records a page stored as a copy of a page recorded earlier.
+     */
+    void recordCopy(int pageNumber, int originalPageNumber, String fileName) {
+        Entry original = completed.get(originalPageNumber);
+        if (original == null) {
+            throw new Pdf2ImageException("Page " + originalPageNumber + " is not recorded in the manifest");
+        }
+        record(pageNumber, fileName, original.size(), original.checksum());
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close conversion manifest", e);
+        }
+    }
+
+    private void parse(String line) {
+        String[] fields = line.split("\t");
+        if (fields.length != 4) {
+            return;
+        }
+        try {
+            completed.put(Integer.parseInt(fields[0]),
+                    new Entry(fields[1], Long.parseLong(fields[2]), Long.parseUnsignedLong(fields[3], 16)));
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed manifest line: {}", line);
+        }
+    }
+
+    private static long checksum(Path file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Fingerprints the input file and every setting that changes the produced images.
+     */
+    private static String fingerprint(ConversionConfig config) throws IOException {
+        Path input = config.getInputDirectory();
+        RenderingConfig rendering = config.getRenderingConfig();
+        String description = String.join("|",
+                input.toAbsolutePath().toString(),
+                String.valueOf(Files.size(input)),
+                String.valueOf(Files.getLastModifiedTime(input).toMillis()),
+                config.getImageFormat().name(),
+                config.getImageMode().name(),
+                String.valueOf(config.getDpi()),
+                String.valueOf(config.getTargetSize().orElse(null)),
+                String.valueOf(config.getRotationDegrees()),
+                config.isEnableCropping() ? "true:" + config.getCroppingTolerance() : "false",
+                config.getBlankPagePolicy().name(),
+                String.valueOf(config.getBlankPageInkRatio()),
+                String.valueOf(rendering.isEnableAntiAliasing()),
+                String.valueOf(rendering.isEnableTextAntiAliasing()),
+                String.valueOf(rendering.isEnableFractionalMetrics()),
+                String.valueOf(rendering.getInterpolation()),
+                String.valueOf(rendering.isEnableSubsampling()),
+                String.valueOf(rendering.getRenderDestination()));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(description.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(String fileName, long size, long checksum) { }
+}
@@ -13,12 +13,50 @@ public interface ImageStorage {
 
     /**
      * Stores an image with the specified page number.
+     * The image is found under {@code "image"}, or under {@code "page-bands"} as
+     * {@link io.github.dk900912.pdf2image.renderer.PageBands} when banded rendering is configured,
+     * or under {@code "encoded-page"} as the bytes of an image file already in the configured
+     * format when the storage {@linkplain #acceptsEncodedPages() accepts encoded pages}.
      *
      * @param context the conversion context
      * @exception Pdf2ImageException if storage fails
      */
     void store(Context context);
 
+    /**
+     * Returns whether pages copied from the document already encoded, such as the JPEG image
+     * of a scanned page, may be handed to this storage (optional operation).
+     *
+     * @return {@code true} if {@link #store(Context)} handles {@code "encoded-page"}
+     */
+    default boolean acceptsEncodedPages() {
+        return false;
+    }
+
+    /**
+     * Stores the current page as a copy of an earlier page of the same conversion that looks
+     * exactly the same and was already stored (optional operation).
+     *
+     * @param context the conversion context
+     * @param originalPageNumber the 1-based number of the earlier page
+     * @return {@code true} if the copy was stored, {@code false} to have the page rendered and stored
+     * @exception Pdf2ImageException if storage fails
+     */
+    default boolean storeDuplicate(Context context, int originalPageNumber) {
+        return false;
+    }
+
+    /**
+     * Returns whether the current page was already stored by a previous, interrupted
+     * conversion and can be skipped (optional operation).
+     *
+     * @param context the conversion context
+     * @return {@code true} if the page does not need to be converted again
+     */
+    default boolean isStored(Context context) {
+        return false;
+    }
+
     /**
      * Prepares the storage for a batch operation (optional operation).
      * This can be used to create directories, establish connections, etc.
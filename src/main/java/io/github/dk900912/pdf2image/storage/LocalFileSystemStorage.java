@@ -5,18 +5,24 @@ import io.github.dk900912.pdf2image.config.ImageFormat;
 import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.context.ContextBase;
 import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.renderer.PageBands;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * Implementation of ImageStorage that saves images to local file system.
+ * In resumable mode the output directory is kept between runs and completed pages
+ * are tracked in a {@link ConversionManifest}.
  *
  * @author dukui
  */
@@ -27,57 +33,182 @@ public class LocalFileSystemStorage implements ImageStorage {
     @Override
     public void prepare(Context context) {
         ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        checkFormat(config);
         Path outputDirectory = config.getOutputDirectory();
         try {
             if (!Files.exists(outputDirectory)) {
                 Files.createDirectories(outputDirectory);
                 logger.info("Created output directory: {}", outputDirectory);
-            } else {
-                try (Stream<Path> listed = Files.list(outputDirectory)) {
-                    // remove existing files
-                    listed.filter(Files::isRegularFile)
-                            .forEach(file -> {
-                                try {
-                                    Files.deleteIfExists(file);
-                                    logger.debug("Deleted existing file: {}", file);
-                                } catch (IOException e) {
-                                    logger.warn("Failed to delete file: {}", file, e);
-                                }
-                            });
-                } catch (IOException e) {
-                    throw new Pdf2ImageException("Failed to list files in directory: " + outputDirectory, e);
-                }
+            } else if (!config.isResumable()) {
+                deleteExistingFiles(outputDirectory);
             }
         } catch (IOException e) {
             throw new Pdf2ImageException("Failed to create output directory: " + outputDirectory, e);
         }
+
+        if (config.isResumable()) {
+            ConversionManifest manifest = ConversionManifest.open(config, () -> deleteExistingFiles(outputDirectory));
+            ((ContextBase) context).put("manifest", manifest);
+        }
+    }
+
+    /**
+     * Rejects a format this storage cannot write before any page is rendered.
+     * Banded pages are streamed into their file band by band, which only PNG supports here.
+     *
+     * @param config the conversion configuration
+     * @exception Pdf2ImageException if the format cannot be written
+     */
+    protected void checkFormat(ConversionConfig config) {
+        if (config.getBandHeight() > 0 && config.getImageFormat() != ImageFormat.PNG) {
+            throw new Pdf2ImageException("Banded pages can only be written as PNG");
+        }
+    }
+
+    @Override
+    public boolean isStored(Context context) {
+        ConversionManifest manifest = (ConversionManifest) ((ContextBase) context).get("manifest");
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        return manifest != null && manifest.isCompleted(pageNumber);
+    }
+
+    @Override
+    public void cleanup(Context context) {
+        ConversionManifest manifest = (ConversionManifest) ((ContextBase) context).remove("manifest");
+        if (manifest != null) {
+            manifest.close();
+        }
+    }
+
+    @Override
+    public boolean acceptsEncodedPages() {
+        return true;
     }
 
     @Override
     public void store(Context context) {
         BufferedImage image = (BufferedImage) ((ContextBase) context).get("image");
+        PageBands bands = (PageBands) ((ContextBase) context).get("page-bands");
+        byte[] encoded = (byte[]) ((ContextBase) context).get("encoded-page");
         int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
         ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
         Path outputDirectory = config.getOutputDirectory();
         ImageFormat format = config.getImageFormat();
 
-        if (image == null) {
+        if (image == null && bands == null && encoded == null) {
             throw new Pdf2ImageException("Image cannot be null");
         }
         if (pageNumber < 1) {
             throw new Pdf2ImageException("Page number must be positive");
         }
+        if (bands != null && format != ImageFormat.PNG) {
+            throw new Pdf2ImageException("Banded pages can only be written as PNG");
+        }
 
         Path outputPath = generateOutputPath(outputDirectory, pageNumber, format);
 
+        ConversionManifest manifest = (ConversionManifest) ((ContextBase) context).get("manifest");
         try {
-            ImageIO.write(image, format.getFormatName(), outputPath.toFile());
+            // never write through a hard link shared with a duplicate page
+            Files.deleteIfExists(outputPath);
+            if (bands != null) {
+                writeBands(bands, outputPath, manifest, pageNumber);
+            } else if (encoded != null) {
+                Files.write(outputPath, encoded);
+                if (manifest != null) {
+                    CRC32C checksum = new CRC32C();
+                    checksum.update(encoded);
+                    manifest.record(pageNumber, outputPath.getFileName().toString(), encoded.length, checksum.getValue());
+                }
+            } else if (manifest == null) {
+                ImageIO.write(image, format.getFormatName(), outputPath.toFile());
+            } else {
+                // checksum the bytes while they are written instead of reading the file back
+                CheckedOutputStream out = new CheckedOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(outputPath)), new CRC32C());
+                try (out) {
+                    ImageIO.write(image, format.getFormatName(), out);
+                }
+                manifest.record(pageNumber, outputPath.getFileName().toString(),
+                        Files.size(outputPath), out.getChecksum().getValue());
+            }
             logger.debug("Saved page {} to: {}", pageNumber, outputPath);
         } catch (IOException e) {
             throw new Pdf2ImageException("Failed to write image for page " + pageNumber, e);
         }
     }
 
+    /**
+     * Hard-links the file of the original page, or copies it where links are not supported.
+     */
+    @Override
+    public boolean storeDuplicate(Context context, int originalPageNumber) {
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        Path original = generateOutputPath(config.getOutputDirectory(), originalPageNumber, config.getImageFormat());
+        Path outputPath = generateOutputPath(config.getOutputDirectory(), pageNumber, config.getImageFormat());
+        if (!Files.isRegularFile(original)) {
+            return false;
+        }
+
+        ConversionManifest manifest = (ConversionManifest) ((ContextBase) context).get("manifest");
+        try {
+            Files.deleteIfExists(outputPath);
+            try {
+                Files.createLink(outputPath, original);
+            } catch (UnsupportedOperationException | IOException e) {
+                logger.debug("Cannot link {} to {}, copying it", outputPath, original, e);
+                Files.copy(original, outputPath);
+            }
+            if (manifest != null) {
+                manifest.recordCopy(pageNumber, originalPageNumber, outputPath.getFileName().toString());
+            }
+            logger.debug("Saved page {} as a copy of page {} to: {}", pageNumber, originalPageNumber, outputPath);
+            return true;
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to copy page " + originalPageNumber + " to page " + pageNumber, e);
+        }
+    }
+
+    /**
+     * Renders a banded page straight into its PNG file, removing the partial file if the page fails.
+     */
+    private void writeBands(PageBands bands, Path outputPath, ConversionManifest manifest, int pageNumber)
+            throws IOException {
+        CheckedOutputStream out = new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(outputPath)), new CRC32C());
+        try (out) {
+            PngBandWriter.write(bands, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(outputPath);
+            throw e;
+        }
+        if (manifest != null) {
+            manifest.record(pageNumber, outputPath.getFileName().toString(),
+                    Files.size(outputPath), out.getChecksum().getValue());
+        }
+    }
+
+    /**
+     * Removes the regular files left in the output directory by a previous conversion.
+     */
+    private void deleteExistingFiles(Path outputDirectory) {
+        try (Stream<Path> listed = Files.list(outputDirectory)) {
+            // remove existing files
+            listed.filter(Files::isRegularFile)
+                    .forEach(file -> {
+                        try {
+                            Files.deleteIfExists(file);
+                            logger.debug("Deleted existing file: {}", file);
+                        } catch (IOException e) {
+                            logger.warn("Failed to delete file: {}", file, e);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to list files in directory: " + outputDirectory, e);
+        }
+    }
+
     /**
      * Generates the output file path for a given page number.
      * Format: {outputDirectory}/{pageNumber}.{extension}
@@ -0,0 +1,260 @@
+package io.github.dk900912.pdf2image.storage;
+
+import io.github.dk900912.pdf2image.renderer.PageBands;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a PNG incrementally from the bands of a page, so that the whole page never has to be
+ * held in memory. ImageIO's PNG writer only accepts complete images, hence this minimal encoder:
+ * rows are filtered with the adaptive heuristic suggested by the PNG specification and deflated
+ * into IDAT chunks as they arrive. Grayscale and black and white bands keep their bit depth,
+ * any other band is written as 8-bit RGB.
+ *
+ * @author dukui
+ */
+final class PngBandWriter {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int COLOR_TYPE_GRAY = 0;
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+
+    private DeflaterOutputStream idat;
+    private int colorType;
+    private int bitDepth;
+    private int bytesPerPixel;
+    private byte[] previousRow;
+    private byte[] currentRow;
+    private byte[][] filteredRows;
+    private int[] samples;
+    private int rowsWritten;
+
+    private PngBandWriter(OutputStream out, int width, int height) {
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Renders the bands of a page and writes them as one PNG image.
+     *
+     * @param bands the page bands
+     * @param out the stream the image is written to, left open
+     * @exception IOException if rendering or writing fails
+     */
+    static void write(PageBands bands, OutputStream out) throws IOException {
+        PngBandWriter writer = new PngBandWriter(out, bands.getWidth(), bands.getHeight());
+        try {
+            bands.forEachBand((band, y) -> writer.writeBand(band));
+            writer.finish();
+        } finally {
+            writer.deflater.end();
+        }
+    }
+
+    private void writeBand(BufferedImage band) throws IOException {
+        if (idat == null) {
+            start(band);
+        }
+        for (int y = 0; y < band.getHeight(); y++) {
+            readRow(band, y);
+            int filter = chooseFilter();
+            idat.write(filter);
+            idat.write(filteredRows[filter]);
+            byte[] swap = previousRow;
+            previousRow = currentRow;
+            currentRow = swap;
+        }
+        rowsWritten += band.getHeight();
+    }
+
+    /**
+     * Picks the pixel layout from the first band and writes the header.
+     */
+    private void start(BufferedImage band) throws IOException {
+        int rowBytes;
+        if (band.getType() == BufferedImage.TYPE_BYTE_BINARY && band.getColorModel().getPixelSize() == 1) {
+            colorType = COLOR_TYPE_GRAY;
+            bitDepth = 1;
+            bytesPerPixel = 1;
+            rowBytes = (width + 7) / 8;
+        } else if (band.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            colorType = COLOR_TYPE_GRAY;
+            bitDepth = 8;
+            bytesPerPixel = 1;
+            rowBytes = width;
+        } else {
+            colorType = COLOR_TYPE_RGB;
+            bitDepth = 8;
+            bytesPerPixel = 3;
+            rowBytes = width * 3;
+        }
+        previousRow = new byte[rowBytes];
+        currentRow = new byte[rowBytes];
+        filteredRows = new byte[5][rowBytes];
+        samples = new int[width];
+
+        out.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(width);
+        headerData.writeInt(height);
+        headerData.writeByte(bitDepth);
+        headerData.writeByte(colorType);
+        headerData.writeByte(0); // deflate
+        headerData.writeByte(0); // adaptive filtering
+        headerData.writeByte(0); // no interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+        idat = new DeflaterOutputStream(new IdatOutputStream(), deflater, CHUNK_SIZE);
+    }
+
+    /**
+     * Copies one row of the band into {@link #currentRow} in PNG sample layout.
+     */
+    private void readRow(BufferedImage band, int y) {
+        if (colorType == COLOR_TYPE_RGB) {
+            band.getRGB(0, y, width, 1, samples, 0, width);
+            for (int x = 0, i = 0; x < width; x++) {
+                int rgb = samples[x];
+                currentRow[i++] = (byte) (rgb >> 16);
+                currentRow[i++] = (byte) (rgb >> 8);
+                currentRow[i++] = (byte) rgb;
+            }
+        } else if (bitDepth == 8) {
+            band.getRaster().getSamples(0, y, width, 1, 0, samples);
+            for (int x = 0; x < width; x++) {
+                currentRow[x] = (byte) samples[x];
+            }
+        } else {
+            // the default binary palette maps 0 to black and 1 to white, as PNG 1-bit grayscale does
+            band.getRaster().getSamples(0, y, width, 1, 0, samples);
+            Arrays.fill(currentRow, (byte) 0);
+            for (int x = 0; x < width; x++) {
+                if (samples[x] != 0) {
+                    currentRow[x >> 3] |= (byte) (0x80 >>> (x & 7));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies the five PNG filters to the current row and returns the one with the smallest
+     * sum of absolute differences.
+     */
+    private int chooseFilter() {
+        int best = 0;
+        long bestSum = Long.MAX_VALUE;
+        for (int filter = 0; filter < 5; filter++) {
+            byte[] filtered = filteredRows[filter];
+            long sum = 0;
+            for (int i = 0; i < currentRow.length; i++) {
+                int raw = currentRow[i] & 0xff;
+                int left = i >= bytesPerPixel ? currentRow[i - bytesPerPixel] & 0xff : 0;
+                int up = previousRow[i] & 0xff;
+                int upLeft = i >= bytesPerPixel ? previousRow[i - bytesPerPixel] & 0xff : 0;
+                int value = switch (filter) {
+                    case 0 -> raw;
+                    case 1 -> raw - left;
+                    case 2 -> raw - up;
+                    case 3 -> raw - ((left + up) >>> 1);
+                    default -> raw - paeth(left, up, upLeft);
+                };
+                filtered[i] = (byte) value;
+                sum += Math.abs((byte) value);
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                best = filter;
+            }
+        }
+        return best;
+    }
+
+    private static int paeth(int left, int up, int upLeft) {
+        int estimate = left + up - upLeft;
+        int distanceLeft = Math.abs(estimate - left);
+        int distanceUp = Math.abs(estimate - up);
+        int distanceUpLeft = Math.abs(estimate - upLeft);
+        if (distanceLeft <= distanceUp && distanceLeft <= distanceUpLeft) {
+            return left;
+        }
+        return distanceUp <= distanceUpLeft ? up : upLeft;
+    }
+
+    private void finish() throws IOException {
+        if (idat == null || rowsWritten != height) {
+            throw new IOException("Expected " + height + " rows but the bands held " + rowsWritten);
+        }
+        idat.finish();
+        idat.flush();
+        writeChunk("IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Collects compressed data and emits it as IDAT chunks of at most {@link #CHUNK_SIZE} bytes.
+     */
+    private final class IdatOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flush();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    flush();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package io.github.dk900912.pdf2image.storage;
+
+import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.ImageFormat;
+import io.github.dk900912.pdf2image.config.ImageMode;
+import io.github.dk900912.pdf2image.context.Context;
+import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.processor.ImageDownscaler;
+import io.github.dk900912.pdf2image.renderer.PageBands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Storage writing every page as a Deep Zoom (DZI) tile pyramid for zoomable viewers.
+ * Page N is described by {@code N.dzi}, and its tiles are written to
+ * {@code N_files/{level}/{column}_{row}.{extension}}, from level 0 (one pixel) up to the
+ * level holding the page at full resolution.
+ *
+ * <p>Tiles are cut row by row while the page arrives, and every completed row of tiles is
+ * scaled down into the next lower level right away. Combined with banded rendering, only
+ * one row of tiles per level is held in memory, never the whole page. Color pages are tiled
+ * in RGB, grayscale and black and white pages in grayscale so that lower levels stay smooth.
+ * Tiles do not overlap.</p>
+ *
+ * @author dukui
+ */
+public class TilePyramidStorage extends LocalFileSystemStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(TilePyramidStorage.class);
+
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private static final String TILES_SUFFIX = "_files";
+
+    private final int tileSize;
+
+    public TilePyramidStorage() {
+        this(DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Creates a storage cutting tiles of the given size. Every full row of tiles is halved into
+     * the level below, so the size must be even to keep the lower levels in proportion;
+     * viewers usually expect a power of two.
+     *
+     * @param tileSize the width and height of the tiles, a positive even number of pixels
+     */
+    public TilePyramidStorage(int tileSize) {
+        if (tileSize < 2 || tileSize % 2 != 0) {
+            throw new IllegalArgumentException("Tile size must be a positive even number");
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Tiles are cut from bands in any format.
+     */
+    @Override
+    protected void checkFormat(ConversionConfig config) {
+    }
+
+    @Override
+    public void prepare(Context context) {
+        super.prepare(context);
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+        if (config.isResumable()) {
+            return;
+        }
+        try (Stream<Path> listed = Files.list(config.getOutputDirectory())) {
+            for (Path directory : listed.filter(path -> path.getFileName().toString().endsWith(TILES_SUFFIX)).toList()) {
+                deleteRecursively(directory);
+            }
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to remove previous tiles in: " + config.getOutputDirectory(), e);
+        }
+    }
+
+    /**
+     * Tiles are cut from decoded pixels, so encoded pages are not accepted.
+     */
+    @Override
+    public boolean acceptsEncodedPages() {
+        return false;
+    }
+
+    /**
+     * Pyramids are not copied, duplicate pages are tiled again.
+     */
+    @Override
+    public boolean storeDuplicate(Context context, int originalPageNumber) {
+        return false;
+    }
+
+    @Override
+    public void store(Context context) {
+        BufferedImage image = (BufferedImage) ((ContextBase) context).get("image");
+        PageBands bands = (PageBands) ((ContextBase) context).get("page-bands");
+        int pageNumber = (int) ((ContextBase) context).get("page-index") + 1;
+        ConversionConfig config = (ConversionConfig) ((ContextBase) context).get("config");
+
+        if (image == null && bands == null) {
+            throw new Pdf2ImageException("Image cannot be null");
+        }
+
+        Path outputDirectory = config.getOutputDirectory();
+        Path tilesDirectory = outputDirectory.resolve(pageNumber + TILES_SUFFIX);
+        Path descriptor = outputDirectory.resolve(pageNumber + ".dzi");
+        ConversionManifest manifest = (ConversionManifest) ((ContextBase) context).get("manifest");
+        try {
+            // the descriptor goes last, so a page without descriptor is never mistaken for a complete one
+            Files.deleteIfExists(descriptor);
+            deleteRecursively(tilesDirectory);
+
+            int width = bands != null ? bands.getWidth() : image.getWidth();
+            int height = bands != null ? bands.getHeight() : image.getHeight();
+            int imageType = config.getImageMode() == ImageMode.COLOR
+                    ? BufferedImage.TYPE_INT_RGB
+                    : BufferedImage.TYPE_BYTE_GRAY;
+            Level top = new Level(tilesDirectory, topLevel(width, height), width, height,
+                    imageType, config.getImageFormat());
+            if (bands != null) {
+                bands.forEachBand((band, y) -> top.append(band));
+            } else {
+                top.append(image);
+            }
+            top.finish();
+
+            byte[] xml = describe(width, height, config.getImageFormat()).getBytes(StandardCharsets.UTF_8);
+            Files.write(descriptor, xml);
+            if (manifest != null) {
+                CRC32C checksum = new CRC32C();
+                checksum.update(xml);
+                manifest.record(pageNumber, descriptor.getFileName().toString(), xml.length, checksum.getValue());
+            }
+            logger.debug("Saved tile pyramid of page {} to: {}", pageNumber, tilesDirectory);
+        } catch (IOException e) {
+            throw new Pdf2ImageException("Failed to write tiles for page " + pageNumber, e);
+        }
+    }
+
+    /**
+     * Returns the level holding the page at full resolution: the level where both sides fit
+     * after halving down to a single pixel.
+     */
+    private static int topLevel(int width, int height) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+    }
+
+    private String describe(int width, int height, ImageFormat format) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<Image xmlns=\"http://schemas.microsoft.com/deepzoom/2008\" TileSize=\"" + tileSize
+                + "\" Overlap=\"0\" Format=\"" + format.getExtension() + "\">\n"
+                + "  <Size Width=\"" + width + "\" Height=\"" + height + "\"/>\n"
+                + "</Image>\n";
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : walk.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * One level of a pyramid, buffering a single row of tiles. Completed rows are written as
+     * tiles and handed, scaled down by half, to the next lower level.
+     */
+    private final class Level {
+
+        private final Path directory;
+        private final int width;
+        private final int imageType;
+        private final ImageFormat format;
+        private final Level lower;
+        private final BufferedImage buffer;
+        private int bufferedRows;
+        private int tileRow;
+
+        Level(Path tilesDirectory, int level, int width, int height, int imageType, ImageFormat format)
+                throws IOException {
+            this.directory = Files.createDirectories(tilesDirectory.resolve(String.valueOf(level)));
+            this.width = width;
+            this.imageType = imageType;
+            this.format = format;
+            this.lower = level > 0
+                    ? new Level(tilesDirectory, level - 1, (width + 1) / 2, (height + 1) / 2, imageType, format)
+                    : null;
+            this.buffer = new BufferedImage(width, Math.min(tileSize, height), imageType);
+        }
+
+        /**
+         * Appends the next rows of this level.
+         */
+        void append(BufferedImage rows) throws IOException {
+            int y = 0;
+            while (y < rows.getHeight()) {
+                int count = Math.min(rows.getHeight() - y, buffer.getHeight() - bufferedRows);
+                Graphics2D g2d = buffer.createGraphics();
+                g2d.drawImage(rows.getSubimage(0, y, width, count), 0, bufferedRows, null);
+                g2d.dispose();
+                bufferedRows += count;
+                y += count;
+                if (bufferedRows == buffer.getHeight()) {
+                    flush();
+                }
+            }
+        }
+
+        /**
+         * Writes the last, possibly partial row of tiles of this level and of the levels below.
+         */
+        void finish() throws IOException {
+            if (bufferedRows > 0) {
+                flush();
+            }
+            if (lower != null) {
+                lower.finish();
+            }
+        }
+
+        private void flush() throws IOException {
+            BufferedImage rows = buffer.getSubimage(0, 0, width, bufferedRows);
+            for (int x = 0, column = 0; x < width; x += tileSize, column++) {
+                BufferedImage tile = rows.getSubimage(x, 0, Math.min(tileSize, width - x), bufferedRows);
+                Path file = directory.resolve(column + "_" + tileRow + "." + format.getExtension());
+                if (!ImageIO.write(tile, format.getFormatName(), file.toFile())) {
+                    throw new IOException("No image writer for format: " + format);
+                }
+            }
+            if (lower != null) {
+                lower.append(ImageDownscaler.scale(rows, lower.width, (bufferedRows + 1) / 2, imageType));
+            }
+            tileRow++;
+            bufferedRows = 0;
+        }
+    }
+}
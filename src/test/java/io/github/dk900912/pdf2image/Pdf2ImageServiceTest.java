@@ -1,26 +1,76 @@
 package io.github.dk900912.pdf2image;
 
+import io.github.dk900912.pdf2image.cache.DocumentCache;
+import io.github.dk900912.pdf2image.cache.SharedResourceCache;
+import io.github.dk900912.pdf2image.config.BlankPagePolicy;
+import io.github.dk900912.pdf2image.config.CancellationToken;
 import io.github.dk900912.pdf2image.config.ConversionConfig;
+import io.github.dk900912.pdf2image.config.ExecutionMode;
 import io.github.dk900912.pdf2image.config.ImageFormat;
 import io.github.dk900912.pdf2image.config.ImageMode;
+import io.github.dk900912.pdf2image.config.InputSource;
+import io.github.dk900912.pdf2image.config.Interpolation;
+import io.github.dk900912.pdf2image.config.LoadingStrategy;
+import io.github.dk900912.pdf2image.config.MemoryBudget;
+import io.github.dk900912.pdf2image.config.OutputSpec;
 import io.github.dk900912.pdf2image.config.RenderingConfig;
+import io.github.dk900912.pdf2image.config.RenderingProfile;
 import io.github.dk900912.pdf2image.config.Resolution;
+import io.github.dk900912.pdf2image.config.TargetSize;
+import io.github.dk900912.pdf2image.context.Context;
 import io.github.dk900912.pdf2image.context.ContextBase;
+import io.github.dk900912.pdf2image.converter.ConversionResult;
+import io.github.dk900912.pdf2image.converter.DefaultPdf2ImageConverter;
+import io.github.dk900912.pdf2image.converter.PageResult;
 import io.github.dk900912.pdf2image.converter.Pdf2ImageConverter;
+import io.github.dk900912.pdf2image.exception.ConversionCancelledException;
+import io.github.dk900912.pdf2image.exception.Pdf2ImageException;
+import io.github.dk900912.pdf2image.processor.DefaultImageProcessor;
+import io.github.dk900912.pdf2image.renderer.FontWarmup;
+import io.github.dk900912.pdf2image.renderer.PdfBoxPageRenderer;
+import io.github.dk900912.pdf2image.storage.LocalFileSystemStorage;
+import io.github.dk900912.pdf2image.storage.TilePyramidStorage;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -102,6 +152,45 @@ public class Pdf2ImageServiceTest {
         assertFalse(config.isEnableFractionalMetrics());
     }
 
+    @Test
+    void testRenderingProfiles() throws IOException, URISyntaxException {
+        RenderingConfig draft = RenderingProfile.DRAFT.toConfig();
+        assertFalse(draft.isEnableAntiAliasing());
+        assertEquals(Interpolation.NEAREST_NEIGHBOR, draft.getInterpolation());
+        assertTrue(draft.isEnableSubsampling());
+        assertEquals(Interpolation.BICUBIC, RenderingProfile.QUALITY.toConfig().getInterpolation());
+
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        for (RenderingProfile profile : RenderingProfile.values()) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve(profile.name()))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 1)
+                    .renderingProfile(profile)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+            assertTrue(Files.exists(tempDir.resolve(profile.name()).resolve("1.png")));
+        }
+
+        // the profiles' hints reach the renderer: only QUALITY anti-aliases the edges
+        BufferedImage draftPage = ImageIO.read(tempDir.resolve("DRAFT").resolve("1.png").toFile());
+        BufferedImage qualityPage = ImageIO.read(tempDir.resolve("QUALITY").resolve("1.png").toFile());
+        assertEquals(draftPage.getWidth(), qualityPage.getWidth());
+        assertEquals(draftPage.getHeight(), qualityPage.getHeight());
+        int differing = 0;
+        for (int y = 0; y < draftPage.getHeight(); y++) {
+            for (int x = 0; x < draftPage.getWidth(); x++) {
+                if (draftPage.getRGB(x, y) != qualityPage.getRGB(x, y)) {
+                    differing++;
+                }
+            }
+        }
+        assertTrue(differing > 0);
+    }
+
     /**
      * Example integration test (requires actual PDF file).
      * Uncomment and provide a real PDF path to test actual conversion.
@@ -132,4 +221,913 @@ public class Pdf2ImageServiceTest {
             assertEquals(endPage - startPage + 1, listed.count());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testConcurrentModesMatchSequential() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            ConversionConfig config = ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve(mode.name()))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 4)
+                    .executionMode(mode)
+                    .parallelism(3)
+                    .pipelineQueueCapacity(1)
+                    .build();
+            ContextBase context = new ContextBase();
+            context.put("config", config);
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+        }
+
+        Path sequentialDir = tempDir.resolve(ExecutionMode.SEQUENTIAL.name());
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            for (int page = 1; page <= 4; page++) {
+                assertArrayEquals(
+                        Files.readAllBytes(sequentialDir.resolve(page + ".png")),
+                        Files.readAllBytes(tempDir.resolve(mode.name()).resolve(page + ".png")));
+            }
+        }
+    }
+
+    @Test
+    void testBatchConversionReportsPerDocumentFailures() throws URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+
+        ContextBase valid = new ContextBase();
+        valid.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("valid"))
+                .resolution(Resolution.STANDARD)
+                .pageRange(1, 1)
+                .build());
+        ContextBase missing = new ContextBase();
+        missing.put("config", ConversionConfig.builder()
+                .inputDirectory(tempDir.resolve("missing.pdf"))
+                .outputDirectory(tempDir.resolve("missing"))
+                .build());
+
+        List<ConversionResult> results = Pdf2ImageConverter.createBatchConverter(2)
+                .convertAll(List.of(valid, missing));
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(Files.exists(tempDir.resolve("valid").resolve("1.png")));
+    }
+
+    @Test
+    void testStreamingPages() throws Exception {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .resolution(Resolution.STANDARD)
+                .pageRange(2, 4)
+                .build());
+
+        try (Stream<PageResult> pages = Pdf2ImageConverter.createDefaultConverter().stream(context)) {
+            assertEquals(List.of(2, 3), pages.limit(2).map(PageResult::pageNumber).toList());
+        }
+
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        CompletableFuture<Void> completed = new CompletableFuture<>();
+        Pdf2ImageConverter.createDefaultConverter().publish(context).subscribe(new Flow.Subscriber<>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(PageResult item) {
+                published.add(item.pageNumber());
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.completeExceptionally(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.complete(null);
+            }
+        });
+        completed.get(1, TimeUnit.MINUTES);
+        assertEquals(List.of(2, 3, 4), published);
+    }
+
+    @Test
+    void testResumableConversionSkipsCompletedPages() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        ConversionConfig config = ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .resolution(Resolution.STANDARD)
+                .pageRange(1, 3)
+                .resumable(true)
+                .build();
+
+        ContextBase context = new ContextBase();
+        context.put("config", config);
+        Pdf2ImageConverter.createDefaultConverter().convert(context);
+
+        // simulate a crash that lost the output of page 2
+        Path page1 = tempDir.resolve("1.png");
+        FileTime page1Modified = Files.getLastModifiedTime(page1);
+        Files.delete(tempDir.resolve("2.png"));
+
+        context = new ContextBase();
+        context.put("config", config);
+        Pdf2ImageConverter.createDefaultConverter().convert(context);
+
+        assertTrue(Files.exists(tempDir.resolve("2.png")));
+        assertEquals(page1Modified, Files.getLastModifiedTime(page1));
+    }
+
+    @Test
+    void testMemoryBudgetAdmitsPagesLargerThanBudget() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        // far smaller than a single page, so pages are admitted one at a time
+        MemoryBudget budget = MemoryBudget.ofBytes(1024);
+
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve(mode.name()))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 3)
+                    .executionMode(mode)
+                    .parallelism(2)
+                    .memoryBudget(budget)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+
+            try (Stream<Path> listed = Files.list(tempDir.resolve(mode.name()))) {
+                assertEquals(3, listed.count());
+            }
+            assertEquals(0, budget.getReservedBytes());
+        }
+    }
+
+    @Test
+    void testLoadingStrategiesProduceSameImages() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        Path scratchDirectory = Files.createDirectory(tempDir.resolve("scratch"));
+
+        for (LoadingStrategy strategy : LoadingStrategy.values()) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve(strategy.name()))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 2)
+                    .loadingStrategy(strategy)
+                    .maxMainMemoryBytes(4096)
+                    .scratchDirectory(scratchDirectory)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+        }
+
+        Path heapOnlyDir = tempDir.resolve(LoadingStrategy.HEAP_ONLY.name());
+        for (LoadingStrategy strategy : LoadingStrategy.values()) {
+            for (int page = 1; page <= 2; page++) {
+                assertArrayEquals(
+                        Files.readAllBytes(heapOnlyDir.resolve(page + ".png")),
+                        Files.readAllBytes(tempDir.resolve(strategy.name()).resolve(page + ".png")));
+            }
+        }
+    }
+
+    @Test
+    void testInMemoryInputSourcesMatchFileInput() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        byte[] bytes = Files.readAllBytes(pdfPath);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+        List<InputSource> sources = List.of(
+                InputSource.of(pdfPath),
+                InputSource.of(bytes),
+                InputSource.of(direct),
+                InputSource.of(new ByteArrayInputStream(bytes)));
+        for (int i = 0; i < sources.size(); i++) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .input(sources.get(i))
+                    .outputDirectory(tempDir.resolve("source" + i))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 2)
+                    .executionMode(ExecutionMode.PARALLEL)
+                    .parallelism(2)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+        }
+
+        for (int i = 1; i < sources.size(); i++) {
+            for (int page = 1; page <= 2; page++) {
+                assertArrayEquals(
+                        Files.readAllBytes(tempDir.resolve("source0").resolve(page + ".png")),
+                        Files.readAllBytes(tempDir.resolve("source" + i).resolve(page + ".png")));
+            }
+        }
+    }
+
+    @Test
+    void testDocumentCacheReusesParsedDocument() throws URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+
+        try (DocumentCache cache = new DocumentCache(4, 64L * 1024 * 1024)) {
+            for (Resolution resolution : List.of(Resolution.STANDARD, Resolution.MEDIUM)) {
+                ContextBase context = new ContextBase();
+                context.put("config", ConversionConfig.builder()
+                        .inputDirectory(pdfPath)
+                        .outputDirectory(tempDir.resolve(resolution.name()))
+                        .resolution(resolution)
+                        .pageRange(1, 1)
+                        .documentCache(cache)
+                        .build());
+                Pdf2ImageConverter.createDefaultConverter().convert(context);
+            }
+
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.size());
+
+            // a conversion loading the file another way gets its own instance
+            ContextBase lazy = new ContextBase();
+            lazy.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve("lazy"))
+                    .pageRange(1, 1)
+                    .lazyLoading(true)
+                    .documentCache(cache)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(lazy);
+            assertEquals(2, cache.getMissCount());
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    void testLazyLoadingPreviewMatchesFullLoad() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+
+        for (boolean lazy : new boolean[] {false, true}) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve("lazy-" + lazy))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 1)
+                    .lazyLoading(lazy)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+        }
+
+        assertArrayEquals(
+                Files.readAllBytes(tempDir.resolve("lazy-false").resolve("1.png")),
+                Files.readAllBytes(tempDir.resolve("lazy-true").resolve("1.png")));
+    }
+
+    @Test
+    void testCancellationAndPageTimeout() throws URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        ContextBase cancelled = new ContextBase();
+        cancelled.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("cancelled"))
+                .cancellationToken(token)
+                .build());
+        assertThrows(ConversionCancelledException.class,
+                () -> Pdf2ImageConverter.createDefaultConverter().convert(cancelled));
+
+        // a deadline that every page misses: all pages are abandoned and reported, none fails the document
+        ContextBase timedOut = new ContextBase();
+        timedOut.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("timed-out"))
+                .resolution(Resolution.HIGH)
+                .pageRange(1, 2)
+                .pageTimeout(Duration.ofNanos(1))
+                .build());
+        ConversionResult result = Pdf2ImageConverter.createDefaultConverter().convertAll(List.of(timedOut)).get(0);
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(1, 2), result.getTimedOutPages());
+    }
+
+    @Test
+    void testRenderSessionOpenedOncePerDocument() throws URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        AtomicInteger prepared = new AtomicInteger();
+        AtomicInteger cleanedUp = new AtomicInteger();
+        PdfBoxPageRenderer renderer = new PdfBoxPageRenderer() {
+            @Override
+            public void prepare(Context context) {
+                prepared.incrementAndGet();
+                super.prepare(context);
+            }
+
+            @Override
+            public void cleanup(Context context) {
+                cleanedUp.incrementAndGet();
+                super.cleanup(context);
+            }
+        };
+
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .resolution(Resolution.STANDARD)
+                .pageRange(1, 3)
+                .build());
+        new DefaultPdf2ImageConverter(renderer, new DefaultImageProcessor(), new LocalFileSystemStorage())
+                .convert(context);
+
+        assertEquals(1, prepared.get());
+        assertEquals(1, cleanedUp.get());
+    }
+
+    @Test
+    void testRotationIsFusedIntoRendering() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        try (PDDocument document = Loader.loadPDF(pdfPath.toFile())) {
+            ContextBase context = new ContextBase();
+            context.put("document", document);
+            context.put("page-index", 0);
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir)
+                    .resolution(Resolution.STANDARD)
+                    .imageMode(ImageMode.GRAYSCALE)
+                    .build());
+            BufferedImage upright = new PdfBoxPageRenderer().renderPage(context);
+
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir)
+                    .resolution(Resolution.STANDARD)
+                    .imageMode(ImageMode.GRAYSCALE)
+                    .rotation(90)
+                    .build());
+            BufferedImage rotated = new PdfBoxPageRenderer().renderPage(context);
+            context.put("image", rotated);
+
+            assertEquals(BufferedImage.TYPE_BYTE_GRAY, rotated.getType());
+            assertEquals(upright.getHeight(), rotated.getWidth());
+            assertEquals(upright.getWidth(), rotated.getHeight());
+            // the processor must hand back the rendered bitmap instead of copying it
+            assertSame(rotated, new DefaultImageProcessor().process(context));
+        }
+    }
+
+    @Test
+    void testBandedRenderingMatchesWholePage() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        for (ImageMode mode : ImageMode.values()) {
+            Path whole = tempDir.resolve(mode + "-whole");
+            Path banded = tempDir.resolve(mode + "-banded");
+            for (Path output : List.of(whole, banded)) {
+                ContextBase context = new ContextBase();
+                context.put("config", ConversionConfig.builder()
+                        .inputDirectory(pdfPath)
+                        .outputDirectory(output)
+                        .resolution(Resolution.STANDARD)
+                        .imageMode(mode)
+                        .pageRange(1, 1)
+                        .bandHeight(output == banded ? 100 : 0)
+                        .build());
+                Pdf2ImageConverter.createDefaultConverter().convert(context);
+            }
+
+            BufferedImage expected = ImageIO.read(whole.resolve("1.png").toFile());
+            BufferedImage actual = ImageIO.read(banded.resolve("1.png").toFile());
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            int differing = 0;
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                        differing++;
+                    }
+                }
+            }
+            // bands clip the same drawing, only anti-aliased edges on band borders may differ
+            assertTrue(differing < expected.getWidth() * expected.getHeight() / 100, mode + ": " + differing);
+        }
+
+        assertThrows(IllegalStateException.class, () -> ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .rotation(90)
+                .bandHeight(100)
+                .build());
+    }
+
+    @Test
+    void testTargetSizeAndArbitraryDpi() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        try (PDDocument document = Loader.loadPDF(pdfPath.toFile())) {
+            ContextBase context = new ContextBase();
+            context.put("document", document);
+            context.put("page-index", 0);
+            ConversionConfig.Builder builder = ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir);
+
+            context.put("config", builder.targetSize(TargetSize.fitWidth(200)).build());
+            assertEquals(200, new PdfBoxPageRenderer().renderPage(context).getWidth());
+
+            context.put("config", builder.targetSize(TargetSize.fitBox(120, 120)).build());
+            BufferedImage boxed = new PdfBoxPageRenderer().renderPage(context);
+            assertEquals(120, Math.max(boxed.getWidth(), boxed.getHeight()));
+
+            context.put("config", builder.targetSize(TargetSize.maxPixels(10_000)).build());
+            BufferedImage limited = new PdfBoxPageRenderer().renderPage(context);
+            assertTrue(limited.getWidth() * limited.getHeight() <= 10_000);
+
+            context.put("config", builder.targetSize(null).dpi(72).build());
+            BufferedImage native72 = new PdfBoxPageRenderer().renderPage(context);
+            assertEquals((int) Math.floor(document.getPage(0).getCropBox().getWidth()), native72.getWidth());
+
+            // the resolution level follows a DPI set directly and is never missing
+            assertEquals(Resolution.STANDARD, builder.dpi(72).build().getResolution());
+            assertEquals(Resolution.HIGH, builder.dpi(300).build().getResolution());
+        }
+    }
+
+    @Test
+    void testAdditionalOutputsFromSingleRender() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        AtomicInteger renders = new AtomicInteger();
+        PdfBoxPageRenderer renderer = new PdfBoxPageRenderer() {
+            @Override
+            public BufferedImage renderPage(Context context) {
+                renders.incrementAndGet();
+                return super.renderPage(context);
+            }
+        };
+
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("print"))
+                .resolution(Resolution.HIGH)
+                .pageRange(1, 2)
+                .addOutput(OutputSpec.builder()
+                        .outputDirectory(tempDir.resolve("screen"))
+                        .imageFormat(ImageFormat.JPEG)
+                        .resolution(Resolution.MEDIUM)
+                        .build())
+                .addOutput(OutputSpec.builder()
+                        .outputDirectory(tempDir.resolve("thumbnail"))
+                        .imageMode(ImageMode.GRAYSCALE)
+                        .targetSize(TargetSize.fitWidth(120))
+                        .build())
+                .build());
+        new DefaultPdf2ImageConverter(renderer, new DefaultImageProcessor(), new LocalFileSystemStorage())
+                .convert(context);
+
+        assertEquals(2, renders.get());
+        BufferedImage print = ImageIO.read(tempDir.resolve("print").resolve("1.png").toFile());
+        BufferedImage screen = ImageIO.read(tempDir.resolve("screen").resolve("1.jpeg").toFile());
+        BufferedImage thumbnail = ImageIO.read(tempDir.resolve("thumbnail").resolve("1.png").toFile());
+        assertEquals(print.getWidth() / 2, screen.getWidth(), 1);
+        assertEquals(120, thumbnail.getWidth());
+        assertTrue(Files.exists(tempDir.resolve("thumbnail").resolve("2.png")));
+
+        assertThrows(IllegalStateException.class, () -> ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .resolution(Resolution.STANDARD)
+                .addOutput(OutputSpec.builder().outputDirectory(tempDir).resolution(Resolution.HIGH).build())
+                .build());
+    }
+
+    @Test
+    void testTilePyramidFromBands() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .imageFormat(ImageFormat.JPEG)
+                .resolution(Resolution.STANDARD)
+                .pageRange(1, 1)
+                .bandHeight(100)
+                .build());
+        new DefaultPdf2ImageConverter(new PdfBoxPageRenderer(), new DefaultImageProcessor(), new TilePyramidStorage())
+                .convert(context);
+
+        String descriptor = Files.readString(tempDir.resolve("1.dzi"));
+        int width = Integer.parseInt(descriptor.replaceAll("(?s).*Width=\"(\\d+)\".*", "$1"));
+        int height = Integer.parseInt(descriptor.replaceAll("(?s).*Height=\"(\\d+)\".*", "$1"));
+        int topLevel = 32 - Integer.numberOfLeadingZeros(Math.max(width, height) - 1);
+
+        Path top = tempDir.resolve("1_files").resolve(String.valueOf(topLevel));
+        try (Stream<Path> tiles = Files.list(top)) {
+            assertEquals(((width + 255) / 256) * ((height + 255) / 256), tiles.count());
+        }
+        BufferedImage corner = ImageIO.read(top.resolve(((width - 1) / 256) + "_" + ((height - 1) / 256) + ".jpeg").toFile());
+        assertEquals((width - 1) % 256 + 1, corner.getWidth());
+        assertEquals((height - 1) % 256 + 1, corner.getHeight());
+        BufferedImage pixel = ImageIO.read(tempDir.resolve("1_files").resolve("0").resolve("0_0.jpeg").toFile());
+        assertEquals(1, pixel.getWidth());
+        assertEquals(1, pixel.getHeight());
+
+        // only tiles are written from JPEG bands, plain files are refused before any page is rendered
+        assertThrows(Pdf2ImageException.class, () -> new LocalFileSystemStorage().prepare(context));
+        // odd tiles would stretch the lower levels
+        assertThrows(IllegalArgumentException.class, () -> new TilePyramidStorage(255));
+    }
+
+    @Test
+    void testSharedResourceCacheServesRepeatedResources() throws IOException, URISyntaxException {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        SharedResourceCache resources = new SharedResourceCache(1_000, 64L * 1024 * 1024);
+        try (PDDocument document = Loader.loadPDF(pdfPath.toFile())) {
+            document.setResourceCache(resources.forDocument(document));
+            ContextBase context = new ContextBase();
+            context.put("document", document);
+            context.put("page-index", 0);
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir)
+                    .resolution(Resolution.STANDARD)
+                    .build());
+            PdfBoxPageRenderer renderer = new PdfBoxPageRenderer();
+            renderer.renderPage(context);
+            long missesAfterFirstRender = resources.getMissCount();
+            renderer.renderPage(context);
+
+            assertTrue(resources.size() > 0);
+            assertTrue(resources.getHitCount() > 0);
+            assertEquals(missesAfterFirstRender, resources.getMissCount());
+
+            resources.invalidate(document);
+            assertEquals(0, resources.size());
+            assertEquals(0, resources.getWeightBytes());
+        }
+
+        // a document closed by the document cache takes its shared resources with it
+        try (DocumentCache documents = new DocumentCache(1, Long.MAX_VALUE)) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve("cached"))
+                    .resolution(Resolution.STANDARD)
+                    .pageRange(1, 1)
+                    .documentCache(documents)
+                    .resourceCache(resources)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+            assertTrue(resources.size() > 0);
+
+            documents.close();
+            assertEquals(0, resources.size());
+        }
+    }
+
+    @Test
+    void testFontWarmup() throws Exception {
+        Path pdfPath = Paths.get(Objects.requireNonNull(getClass().getClassLoader()
+                .getResource("sample.pdf")).toURI());
+        DefaultPdf2ImageConverter converter = Pdf2ImageConverter.createDefaultConverter(true);
+        CompletableFuture<Void> warmup = FontWarmup.start();
+        assertSame(warmup, FontWarmup.start());
+        warmup.get(5, TimeUnit.MINUTES);
+        assertTrue(FontWarmup.isWarm());
+
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir)
+                .resolution(Resolution.STANDARD)
+                .pageRange(1, 1)
+                .build());
+        converter.convert(context);
+        assertTrue(Files.exists(tempDir.resolve("1.png")));
+    }
+
+    @Test
+    void testScannedPageFastPath() throws IOException {
+        BufferedImage scan = new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < scan.getHeight(); y++) {
+            for (int x = 0; x < scan.getWidth(); x++) {
+                scan.setRGB(x, y, (x % 256) << 16 | (y % 256) << 8 | 0x80);
+            }
+        }
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(scan, "jpeg", jpeg);
+        Path pdfPath = tempDir.resolve("scan.pdf");
+        try (PDDocument document = new PDDocument()) {
+            // 400 x 600 pixels at 100 DPI
+            PDPage page = new PDPage(new PDRectangle(288, 432));
+            document.addPage(page);
+            PDImageXObject image = JPEGFactory.createFromByteArray(document, jpeg.toByteArray());
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.drawImage(image, 0, 0, 288, 432);
+            }
+            document.save(pdfPath.toFile());
+        }
+
+        ContextBase copied = new ContextBase();
+        copied.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("copied"))
+                .imageFormat(ImageFormat.JPEG)
+                .dpi(100)
+                .scannedPageFastPath(true)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(copied);
+        assertArrayEquals(jpeg.toByteArray(), Files.readAllBytes(tempDir.resolve("copied").resolve("1.jpeg")));
+
+        ContextBase decoded = new ContextBase();
+        decoded.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("decoded"))
+                .dpi(50)
+                .scannedPageFastPath(true)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(decoded);
+        ContextBase rendered = new ContextBase();
+        rendered.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("rendered"))
+                .dpi(50)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(rendered);
+
+        BufferedImage fast = ImageIO.read(tempDir.resolve("decoded").resolve("1.png").toFile());
+        BufferedImage slow = ImageIO.read(tempDir.resolve("rendered").resolve("1.png").toFile());
+        assertEquals(slow.getWidth(), fast.getWidth());
+        assertEquals(slow.getHeight(), fast.getHeight());
+        assertEquals(200, fast.getWidth());
+        assertEquals(300, fast.getHeight());
+    }
+
+    @Test
+    void testDuplicatePagesAreRenderedOnce() throws IOException {
+        Path pdfPath = tempDir.resolve("repeated.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (String text : new String[] {"Terms and conditions", "Terms and conditions", "Invoice"}) {
+                PDPage page = new PDPage(PDRectangle.A6);
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 12);
+                    content.newLineAtOffset(20, 200);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            document.save(pdfPath.toFile());
+        }
+
+        AtomicInteger renders = new AtomicInteger();
+        PdfBoxPageRenderer countingRenderer = new PdfBoxPageRenderer() {
+            @Override
+            public BufferedImage renderPage(Context context) {
+                renders.incrementAndGet();
+                return super.renderPage(context);
+            }
+        };
+        Path outputDirectory = tempDir.resolve("deduplicated");
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(outputDirectory)
+                .resolution(Resolution.STANDARD)
+                .deduplicatePages(true)
+                .build());
+        new DefaultPdf2ImageConverter(countingRenderer, new DefaultImageProcessor(), new LocalFileSystemStorage())
+                .convert(context);
+
+        assertEquals(2, renders.get());
+        assertArrayEquals(Files.readAllBytes(outputDirectory.resolve("1.png")),
+                Files.readAllBytes(outputDirectory.resolve("2.png")));
+        assertFalse(Arrays.equals(Files.readAllBytes(outputDirectory.resolve("1.png")),
+                Files.readAllBytes(outputDirectory.resolve("3.png"))));
+    }
+
+    @Test
+    void testBlankPagesAreDetectedAndSkipped() throws IOException {
+        Path pdfPath = tempDir.resolve("duplex.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDPage text = new PDPage(PDRectangle.A6);
+            document.addPage(text);
+            try (PDPageContentStream content = new PDPageContentStream(document, text)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 24);
+                content.newLineAtOffset(20, 200);
+                content.showText("Front side");
+                content.endText();
+            }
+            // an empty back and a back with a speck of dust
+            document.addPage(new PDPage(PDRectangle.A6));
+            PDPage speck = new PDPage(PDRectangle.A6);
+            document.addPage(speck);
+            try (PDPageContentStream content = new PDPageContentStream(document, speck)) {
+                content.addRect(100, 100, 1, 1);
+                content.fill();
+            }
+            // an empty page followed by a page with content, which must not inherit its blankness
+            document.addPage(new PDPage(PDRectangle.A6));
+            PDPage after = new PDPage(PDRectangle.A6);
+            document.addPage(after);
+            try (PDPageContentStream content = new PDPageContentStream(document, after)) {
+                content.beginText();
+                content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 24);
+                content.newLineAtOffset(20, 200);
+                content.showText("Next sheet");
+                content.endText();
+            }
+            document.save(pdfPath.toFile());
+        }
+
+        ContextBase skipped = new ContextBase();
+        skipped.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("skipped"))
+                .resolution(Resolution.STANDARD)
+                .blankPages(BlankPagePolicy.SKIP)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(skipped);
+        assertEquals(List.of(2, 3, 4), ConversionResult.success(skipped).getBlankPages());
+        assertTrue(Files.exists(tempDir.resolve("skipped").resolve("1.png")));
+        assertFalse(Files.exists(tempDir.resolve("skipped").resolve("2.png")));
+        assertFalse(Files.exists(tempDir.resolve("skipped").resolve("3.png")));
+        assertFalse(Files.exists(tempDir.resolve("skipped").resolve("4.png")));
+        assertTrue(Files.exists(tempDir.resolve("skipped").resolve("5.png")));
+
+        ContextBase downscaled = new ContextBase();
+        downscaled.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(tempDir.resolve("downscaled"))
+                .resolution(Resolution.STANDARD)
+                .blankPages(BlankPagePolicy.DOWNSCALE)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(downscaled);
+        BufferedImage front = ImageIO.read(tempDir.resolve("downscaled").resolve("1.png").toFile());
+        BufferedImage back = ImageIO.read(tempDir.resolve("downscaled").resolve("2.png").toFile());
+        assertEquals(front.getWidth() / 8, back.getWidth());
+        assertEquals(front.getHeight() / 8, back.getHeight());
+        assertEquals(List.of(2, 3, 4), ConversionResult.success(downscaled).getBlankPages());
+        BufferedImage next = ImageIO.read(tempDir.resolve("downscaled").resolve("5.png").toFile());
+        assertEquals(front.getWidth(), next.getWidth());
+    }
+
+    @Test
+    void testQuarterTurnRotationIsLossless() {
+        Random random = new Random(42);
+        for (ImageMode mode : ImageMode.values()) {
+            // an odd width leaves padding bits at the end of every packed 1-bit row
+            BufferedImage image = new BufferedImage(37, 23, mode.getBufferedImageType());
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    image.setRGB(x, y, random.nextInt(0x1000000));
+                }
+            }
+
+            BufferedImage quarter = rotate(image, mode, 90);
+            assertEquals(image.getHeight(), quarter.getWidth());
+            assertEquals(image.getWidth(), quarter.getHeight());
+            assertEquals(image.getRGB(5, 7), quarter.getRGB(image.getHeight() - 1 - 7, 5));
+
+            for (int degrees : new int[] {90, 180, 270, -90}) {
+                BufferedImage restored = rotate(rotate(image, mode, degrees), mode, 360 - degrees);
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        assertEquals(image.getRGB(x, y), restored.getRGB(x, y), mode + " rotated by " + degrees);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testWhitespaceCropping() throws IOException {
+        Path pdfPath = tempDir.resolve("margins.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(new PDRectangle(300, 300));
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                content.addRect(50, 100, 100, 80);
+                content.fill();
+            }
+            document.addPage(new PDPage(new PDRectangle(300, 300)));
+            document.save(pdfPath.toFile());
+        }
+
+        Path outputDir = tempDir.resolve("cropped");
+        ContextBase context = new ContextBase();
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(pdfPath)
+                .outputDirectory(outputDir)
+                .dpi(72)
+                .enableCropping(true)
+                .build());
+        Pdf2ImageConverter.createDefaultConverter().convert(context);
+
+        BufferedImage cropped = ImageIO.read(outputDir.resolve("1.png").toFile());
+        assertEquals(100, cropped.getWidth());
+        assertEquals(80, cropped.getHeight());
+        assertEquals(0x000000, cropped.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0x000000, cropped.getRGB(99, 79) & 0xFFFFFF);
+        // a page without content keeps its size
+        BufferedImage blank = ImageIO.read(outputDir.resolve("2.png").toFile());
+        assertEquals(300, blank.getWidth());
+        assertEquals(300, blank.getHeight());
+    }
+
+    @Test
+    void testCroppingKeepsMiterSpikes() throws IOException {
+        Path pdfPath = tempDir.resolve("miter.pdf");
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage(new PDRectangle(300, 400));
+            document.addPage(page);
+            try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                // a sharp join whose spike reaches far beyond the line width
+                content.setLineWidth(10);
+                content.setLineJoinStyle(0);
+                content.setMiterLimit(50);
+                content.moveTo(100, 50);
+                content.lineTo(110, 200);
+                content.lineTo(120, 50);
+                content.stroke();
+            }
+            document.save(pdfPath.toFile());
+        }
+
+        for (boolean cropping : new boolean[] {false, true}) {
+            ContextBase context = new ContextBase();
+            context.put("config", ConversionConfig.builder()
+                    .inputDirectory(pdfPath)
+                    .outputDirectory(tempDir.resolve(cropping ? "cropped" : "whole"))
+                    .dpi(72)
+                    .enableCropping(cropping)
+                    .build());
+            Pdf2ImageConverter.createDefaultConverter().convert(context);
+        }
+
+        // the cropped page holds everything the whole page shows
+        BufferedImage whole = ImageIO.read(tempDir.resolve("whole").resolve("1.png").toFile());
+        BufferedImage cropped = ImageIO.read(tempDir.resolve("cropped").resolve("1.png").toFile());
+        int top = whole.getHeight();
+        int bottom = -1;
+        int left = whole.getWidth();
+        int right = -1;
+        for (int y = 0; y < whole.getHeight(); y++) {
+            for (int x = 0; x < whole.getWidth(); x++) {
+                if ((whole.getRGB(x, y) & 0xFF) < 255 - 16) {
+                    top = Math.min(top, y);
+                    bottom = Math.max(bottom, y);
+                    left = Math.min(left, x);
+                    right = Math.max(right, x);
+                }
+            }
+        }
+        assertEquals(right - left + 1, cropped.getWidth());
+        assertEquals(bottom - top + 1, cropped.getHeight());
+    }
+
+    private BufferedImage rotate(BufferedImage image, ImageMode mode, int degrees) {
+        ContextBase context = new ContextBase();
+        context.put("image", image);
+        context.put("config", ConversionConfig.builder()
+                .inputDirectory(tempDir)
+                .outputDirectory(tempDir)
+                .imageMode(mode)
+                .rotation(degrees)
+                .build());
+        return new DefaultImageProcessor().process(context);
+    }
+}